@@ -0,0 +1,148 @@
+package com.example.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.log.BaseLogEntry;
+import org.openqa.selenium.bidi.log.LogLevel;
+import org.openqa.selenium.bidi.module.LogInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Session-scoped browser console capture for Chrome, Edge and Firefox. Console entries and JavaScript
+ * errors are streamed over WebDriver BiDi into a fixed-size ring buffer, which is drained at the end of
+ * the test without a round trip to the browser. If the buffer is full, the oldest entries are dropped.
+ * <p>
+ * Enabled by default, disabled with {@code -DbrowserLogs.capture=false}. The capacity is set with
+ * {@code -DbrowserLogs.capacity} (default 1000).
+ */
+public class BrowserLogCapture implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(BrowserLogCapture.class);
+
+	private final LogInspector inspector;
+	private final Entry[] buffer;
+	private int head;
+	private int size;
+	private long dropped;
+
+	private BrowserLogCapture(LogInspector inspector, int capacity) {
+		this.inspector = inspector;
+		this.buffer = new Entry[capacity];
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("browserLogs.capture", "true"));
+	}
+
+	/**
+	 * Subscribes to the console and JavaScript logs of the session.
+	 *
+	 * @param bidiDriver a driver with BiDi support
+	 * @return the capture, to be closed with the session
+	 */
+	static BrowserLogCapture attach(WebDriver bidiDriver) {
+		LogInspector inspector = new LogInspector(bidiDriver);
+		BrowserLogCapture capture = new BrowserLogCapture(inspector, Math.max(1, Integer.getInteger("browserLogs.capacity", 1000)));
+		inspector.onConsoleEntry(capture::add);
+		inspector.onJavaScriptLog(capture::add);
+		return capture;
+	}
+
+	private synchronized void add(BaseLogEntry entry) {
+		if (size == buffer.length) {
+			dropped++;
+		} else {
+			size++;
+		}
+		buffer[head] = new Entry(entry.getTimestamp(), entry.getLevel(), normalize(entry.getText()));
+		head = (head + 1) % buffer.length;
+	}
+
+	/**
+	 * Returns the buffered entries in arrival order and empties the buffer.
+	 */
+	public synchronized List<Entry> drain() {
+		List<Entry> entries = new ArrayList<>(size);
+		int start = (head - size + buffer.length) % buffer.length;
+		for (int i = 0; i < size; i++) {
+			int index = (start + i) % buffer.length;
+			entries.add(buffer[index]);
+			buffer[index] = null;
+		}
+		if (dropped > 0) {
+			logger.warn("Browser log buffer full, dropped {} entries", dropped);
+		}
+		size = 0;
+		dropped = 0;
+		return entries;
+	}
+
+	@Override
+	public void close() {
+		try {
+			inspector.close();
+		} catch (Exception e) {
+			logger.debug("Could not close log inspector: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Replaces typographic characters and their cp437 mojibake ("ΓÇ" + char) with ASCII in one pass.
+	 *
+	 * @param input the log text
+	 * @return the trimmed, normalized text
+	 */
+	static String normalize(String input) {
+		if (input == null) {
+			return "";
+		}
+		StringBuilder out = null;
+		int length = input.length();
+		for (int i = 0; i < length; i++) {
+			char c = input.charAt(i);
+			String replacement = null;
+			int consumed = 0;
+			switch (c) {
+				case 'Γ' -> {
+					if (i + 2 < length && input.charAt(i + 1) == 'Ç') {
+						replacement = mojibake(input.charAt(i + 2));
+						consumed = 2;
+					}
+				}
+				case '“', '”' -> replacement = "\"";
+				case '’' -> replacement = "'";
+				case '–' -> replacement = "-";
+				case '…' -> replacement = "...";
+				case '\u00A0' -> replacement = " "; // non-breaking space
+				default -> {
+				}
+			}
+			if (replacement == null) {
+				if (out != null) out.append(c);
+				continue;
+			}
+			if (out == null) {
+				out = new StringBuilder(length).append(input, 0, i);
+			}
+			out.append(replacement);
+			i += consumed;
+		}
+		return (out == null ? input : out.toString()).trim();
+	}
+
+	private static String mojibake(char c) {
+		return switch (c) {
+			case 'ÿ' -> "'";       // single quote
+			case '£', '¥' -> "\""; // double quotes
+			case 'ô' -> "-";       // dash
+			case 'ó' -> "•";       // bullet point
+			default -> null;
+		};
+	}
+
+	public record Entry(long timestamp, LogLevel level, String text) {
+	}
+}
@@ -0,0 +1,154 @@
+package com.example.config;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.config.DriverFactoryExtended.BrowserType;
+
+/**
+ * Pre-initialized Chrome profile template for local sessions. The template is built once (first run
+ * done, caches primed) and every session starts on its own copy of it, which is deleted when the session
+ * is quit. Sessions therefore skip the first-run initialization without sharing mutable profile state.
+ * <p>
+ * Enabled with {@code -DchromeProfileTemplate=true}; ignored if {@code -DSelChromeUserDataDir} is set.
+ * The page loaded to prime the caches is set with {@code -DchromeProfileTemplate.warmupUrl}.
+ * Delete {@code target/chrome-profile-template} to rebuild the template.
+ */
+public final class ChromeProfileTemplate {
+
+	private static final Logger logger = LoggerFactory.getLogger(ChromeProfileTemplate.class);
+
+	private static final Path TEMPLATE_DIR = Path.of("target", "chrome-profile-template");
+	private static final Path PROFILES_DIR = Path.of("target", "chrome-profiles");
+	private static final Path READY_MARKER = TEMPLATE_DIR.resolve(".ready");
+
+	/** Files bound to the running browser instance which must not be copied. */
+	private static final Set<String> SKIPPED_FILES = Set.of("SingletonLock", "SingletonSocket", "SingletonCookie",
+			"lockfile", "Crashpad", "BrowserMetrics", ".ready");
+
+	private static volatile boolean ready;
+
+	private ChromeProfileTemplate() {
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("chromeProfileTemplate", "false"))
+				&& System.getProperty("SelChromeUserDataDir") == null;
+	}
+
+	/**
+	 * Creates a new profile directory for a session as copy of the template. Builds the template first
+	 * if it does not exist yet.
+	 *
+	 * @param baseOptions the options used for sessions, used to build the template
+	 * @return the new profile directory
+	 */
+	static Path newProfile(Supplier<ChromeOptions> baseOptions) throws IOException {
+		ensureTemplate(baseOptions);
+		Path profile = PROFILES_DIR.resolve(UUID.randomUUID().toString()).toAbsolutePath();
+		copyTree(TEMPLATE_DIR, profile);
+		return profile;
+	}
+
+	/**
+	 * Deletes a profile directory created by {@link #newProfile(Supplier)}.
+	 */
+	static void deleteProfile(Path profile) {
+		try (Stream<Path> files = Files.walk(profile)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException ignored) {
+				}
+			});
+		} catch (IOException e) {
+			logger.warn("Could not delete chrome profile {}: {}", profile, e.getMessage());
+		}
+	}
+
+	private static void ensureTemplate(Supplier<ChromeOptions> baseOptions) throws IOException {
+		if (ready) {
+			return;
+		}
+		synchronized (ChromeProfileTemplate.class) {
+			if (ready) {
+				return;
+			}
+			Files.createDirectories(PROFILES_DIR);
+			// forks build the template only once
+			try (FileChannel channel = FileChannel.open(PROFILES_DIR.resolve("template.lock"),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				 FileLock ignored = channel.lock()) {
+				if (!Files.exists(READY_MARKER)) {
+					buildTemplate(baseOptions.get());
+				}
+			}
+			ready = true;
+		}
+	}
+
+	private static void buildTemplate(ChromeOptions options) throws IOException {
+		long start = System.nanoTime();
+		if (Files.exists(TEMPLATE_DIR)) {
+			deleteProfile(TEMPLATE_DIR);
+		}
+		Files.createDirectories(TEMPLATE_DIR);
+		options.addArguments("--user-data-dir=" + TEMPLATE_DIR.toAbsolutePath(), "--no-first-run", "--no-default-browser-check");
+
+		DriverService service = DriverServiceRegistry.getInstance().acquire(BrowserType.CHROME);
+		try {
+			WebDriver driver = new ChromeDriver((ChromeDriverService) service, options);
+			try {
+				driver.get(System.getProperty("chromeProfileTemplate.warmupUrl", "about:blank"));
+			} finally {
+				driver.quit();
+			}
+		} finally {
+			DriverServiceRegistry.getInstance().release(service);
+		}
+		Files.createFile(READY_MARKER);
+		logger.info("Built chrome profile template in {} ms", (System.nanoTime() - start) / 1_000_000);
+	}
+
+	/**
+	 * Copies the template. The files are copied rather than hard linked, because Chrome updates some
+	 * profile files (e.g. its SQLite databases) in place, which would leak into the template and the
+	 * other sessions.
+	 */
+	private static void copyTree(Path source, Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (SKIPPED_FILES.contains(dir.getFileName().toString())) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				Files.createDirectories(target.resolve(source.relativize(dir)));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (attrs.isRegularFile() && !SKIPPED_FILES.contains(file.getFileName().toString())) {
+					Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.COPY_ATTRIBUTES);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,242 @@
+package com.example.config;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.utils.OsCheck;
+
+/**
+ * One-time probe of the local driver environment: driver paths, driver versions, whether the drivers
+ * are executable and the Firefox binary on Windows.
+ * <p>
+ * The results are stored in {@value #MANIFEST} and reused by every fork and session. An entry is
+ * probed again when the modification time or the size of the probed file changes. Forks serialize
+ * probing with a file lock, so only the first one spawns the {@code --version} processes.
+ */
+public final class DriverEnvironment {
+
+	private static final Logger logger = LoggerFactory.getLogger(DriverEnvironment.class);
+
+	private static final String CHROME_DRIVER = "src/test/resources/drivers/%s/chromedriver-138";
+	private static final String FIREFOX_DRIVER = "src/test/resources/drivers/%s/geckodriver";
+	private static final String EDGE_DRIVER = "src/test/resources/drivers/%s/msedgedriver-139";
+
+	private static final String MANIFEST = "target/driver-env/manifest.properties";
+	private static final Path MANIFEST_PATH = Path.of(MANIFEST);
+	private static final Path LOCK_PATH = Path.of("target/driver-env/manifest.lock");
+
+	private static final Properties manifest = new Properties();
+
+	static {
+		load(manifest);
+	}
+
+	private DriverEnvironment() {
+	}
+
+	/**
+	 * Returns the path of the driver executable of the browser for the current OS.
+	 *
+	 * @param browser "chrome", "firefox" or "edge"
+	 * @return the relative driver path
+	 */
+	public static String driverPath(String browser) {
+		return probe(browser).getProperty(browser + ".path");
+	}
+
+	/**
+	 * Returns the output of {@code <driver> --version}, probed once per driver file.
+	 *
+	 * @param browser "chrome", "firefox" or "edge"
+	 * @return the version output or empty if the driver is missing or could not be run
+	 */
+	public static Optional<String> driverVersion(String browser) {
+		return Optional.ofNullable(probe(browser).getProperty(browser + ".version"));
+	}
+
+	/**
+	 * Returns the Firefox binary on Windows, found in the common install locations or on the PATH.
+	 * The result, also a failed search, is reused while the inputs of the search (the
+	 * {@code MOZ_FIREFOX_BINARY} override, the PATH and the install locations) are unchanged.
+	 */
+	public static Optional<String> firefoxBinary() {
+		String search = searchFingerprint();
+		synchronized (manifest) {
+			if (search.equals(manifest.getProperty("firefox.binary.searched"))) {
+				String binary = manifest.getProperty("firefox.binary");
+				if (binary == null) {
+					return Optional.empty();
+				}
+				if (fingerprint(Path.of(binary)).equals(manifest.getProperty("firefox.binary.fingerprint"))) {
+					return Optional.of(binary);
+				}
+			}
+		}
+		return Optional.ofNullable(update(m -> {
+			m.remove("firefox.binary");
+			m.setProperty("firefox.binary.searched", search);
+			findFirefoxBinaryOnWindows().ifPresent(path -> {
+				m.setProperty("firefox.binary", path);
+				m.setProperty("firefox.binary.fingerprint", fingerprint(Path.of(path)));
+			});
+		}).getProperty("firefox.binary"));
+	}
+
+	private static Properties probe(String browser) {
+		String path = computeDriverPath(browser);
+		String fingerprint = fingerprint(Path.of(path));
+		synchronized (manifest) {
+			if (path.equals(manifest.getProperty(browser + ".path"))
+					&& fingerprint.equals(manifest.getProperty(browser + ".fingerprint"))) {
+				return manifest;
+			}
+		}
+		return update(m -> {
+			if (path.equals(m.getProperty(browser + ".path")) && fingerprint.equals(m.getProperty(browser + ".fingerprint"))) {
+				return; // probed by another fork in the meantime
+			}
+			File driver = new File(path);
+			m.setProperty(browser + ".path", path);
+			m.setProperty(browser + ".fingerprint", fingerprint);
+			m.setProperty(browser + ".executable", String.valueOf(driver.canExecute()));
+			m.remove(browser + ".version");
+			if (driver.canExecute()) {
+				probeVersion(path).ifPresent(version -> m.setProperty(browser + ".version", version));
+			}
+			logger.debug("Probed {} driver {}: {}", browser, path, m.getProperty(browser + ".version", "no version"));
+		});
+	}
+
+	private static String computeDriverPath(String browser) {
+		OsCheck.OSType os = OsCheck.getOperatingSystemType();
+		String osFolder = OsCheck.getDriverFolder();
+		return switch (browser) {
+			case "chrome" -> String.format(CHROME_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
+			case "firefox" -> String.format(FIREFOX_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
+			case "edge" -> String.format(EDGE_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
+			default -> throw new IllegalArgumentException("Unknown browser: " + browser);
+		};
+	}
+
+	/**
+	 * Modification time and size of the file, or "missing".
+	 */
+	private static String fingerprint(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis() + ":" + Files.size(file);
+		} catch (IOException e) {
+			return "missing";
+		}
+	}
+
+	/**
+	 * Applies the change to the manifest under the cross-fork file lock and writes it back.
+	 */
+	private static Properties update(Consumer<Properties> change) {
+		synchronized (manifest) {
+			try {
+				Files.createDirectories(MANIFEST_PATH.getParent());
+				try (FileChannel channel = FileChannel.open(LOCK_PATH, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+					 FileLock ignored = channel.lock()) {
+					load(manifest);
+					change.accept(manifest);
+					Path tmp = Files.createTempFile(MANIFEST_PATH.getParent(), "manifest", ".tmp");
+					try (OutputStream out = Files.newOutputStream(tmp)) {
+						manifest.store(out, "driver environment probe, delete to probe again");
+					}
+					Files.move(tmp, MANIFEST_PATH, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				}
+			} catch (IOException e) {
+				logger.warn("Could not update driver environment manifest: {}", e.getMessage());
+				change.accept(manifest);
+			}
+			return manifest;
+		}
+	}
+
+	private static void load(Properties target) {
+		if (Files.isRegularFile(MANIFEST_PATH)) {
+			try (InputStream in = Files.newInputStream(MANIFEST_PATH)) {
+				target.load(in);
+			} catch (IOException e) {
+				logger.debug("Could not read driver environment manifest: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static Optional<String> probeVersion(String driverPath) {
+		try {
+			Process process = new ProcessBuilder(driverPath, "--version")
+					.redirectErrorStream(true)
+					.start();
+			StringBuilder output = new StringBuilder();
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (!output.isEmpty()) output.append(System.lineSeparator());
+					output.append(line);
+				}
+			}
+			process.waitFor(10, TimeUnit.SECONDS);
+			return output.isEmpty() ? Optional.empty() : Optional.of(output.toString());
+		} catch (IOException e) {
+			logger.warn("Could not get version of {}: {}", driverPath, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return Optional.empty();
+	}
+
+	private static String[] firefoxCandidates() {
+		return new String[] {
+				System.getenv("MOZ_FIREFOX_BINARY"),                                  // allow override via env
+				"C:\\Program Files\\Mozilla Firefox\\firefox.exe",
+				"C:\\Program Files (x86)\\Mozilla Firefox\\firefox.exe"
+		};
+	}
+
+	/**
+	 * Inputs of the Firefox binary search: the candidates with their fingerprints and the PATH.
+	 */
+	private static String searchFingerprint() {
+		StringBuilder inputs = new StringBuilder();
+		for (String candidate : firefoxCandidates()) {
+			inputs.append(candidate).append('=').append(candidate == null ? "" : fingerprint(Path.of(candidate))).append('|');
+		}
+		inputs.append(System.getenv("PATH"));
+		return Integer.toHexString(inputs.toString().hashCode());
+	}
+
+	private static Optional<String> findFirefoxBinaryOnWindows() {
+		// Common paths
+		for (String p : firefoxCandidates()) {
+			if (p != null && new File(p).isFile()) {
+				logger.debug("Found firefox binary on windows {}", p);
+				return Optional.of(p);
+			}
+		}
+		// Try PATH
+		try {
+			Process proc = new ProcessBuilder("where", "firefox").redirectErrorStream(true).start();
+			try (BufferedReader r = new BufferedReader(new InputStreamReader(proc.getInputStream()))) {
+				String line;
+				while ((line = r.readLine()) != null) {
+					if (line.toLowerCase().endsWith("firefox.exe") && new File(line).isFile()) {
+						logger.debug("Found firefox binary on windows {}", line);
+						return Optional.of(line.trim());
+					}
+				}
+			}
+		} catch (Exception ignored) {}
+		logger.warn("Could not find firefox binary on windows");
+		return Optional.empty();
+	}
+}
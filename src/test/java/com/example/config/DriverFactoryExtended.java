@@ -1,9 +1,9 @@
 package com.example.config;
 
-import io.qameta.allure.Allure;
 import org.openqa.selenium.*;
+import org.openqa.selenium.bidi.HasBiDi;
 import org.openqa.selenium.bidi.log.LogLevel;
-import org.openqa.selenium.bidi.module.LogInspector;
+import org.openqa.selenium.bidi.module.Script;
 import org.openqa.selenium.chrome.*;
 import org.openqa.selenium.edge.*;
 import org.openqa.selenium.firefox.*;
@@ -12,29 +12,33 @@ import org.openqa.selenium.remote.*;
 import org.openqa.selenium.remote.service.DriverService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.example.utils.AllureAttachmentStore;
 import com.example.utils.HasLogger;
 import com.example.utils.OsCheck;
+import com.example.utils.ScriptLibrary;
 
 import java.io.*;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 public class DriverFactoryExtended implements HasLogger {
 
 	private static final Logger logger = LoggerFactory.getLogger(DriverFactoryExtended.class);
 
-	private static final String CHROME_DRIVER = "src/test/resources/drivers/%s/chromedriver-138";
-	private static final String FIREFOX_DRIVER = "src/test/resources/drivers/%s/geckodriver";
-	private static final String EDGE_DRIVER = "src/test/resources/drivers/%s/msedgedriver-139";
-
 	private static final ThreadLocal<WebDriver> driver = new ThreadLocal<>();
-	private static final ThreadLocal<DriverService> driverService = new ThreadLocal<>();
+	private static final Map<WebDriver, DriverService> sessionServices = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static final Map<WebDriver, Path> sessionProfiles = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static final Map<WebDriver, ResourceBlocker> sessionBlockers = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static final Map<WebDriver, BrowserLogCapture> sessionLogCaptures = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static final Map<WebDriver, PageReadiness> sessionReadiness = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static final Map<WebDriver, Script> sessionPreloads = Collections.synchronizedMap(new IdentityHashMap<>());
 
 	public static WebDriver getDriver() {
 		return driver.get();
@@ -56,14 +60,57 @@ public class DriverFactoryExtended implements HasLogger {
 		String remoteUrl = System.getProperty("remoteUrl", "").trim();
 		logger.info("Initializing WebDriver with browser: [{}] and remote URL: [{}]", browser, remoteUrl);
 
+		if (DriverPool.isEnabled()) {
+			WebDriver pooled = DriverPool.getInstance(DriverFactoryExtended::destroyDriver)
+					.borrow(sessionKey(browser, remoteUrl), () -> createDriver(browser, remoteUrl));
+			setDriver(pooled);
+			return pooled;
+		}
+		return createDriver(browser, remoteUrl);
+	}
+
+	/**
+	 * Creates a new session. With pre-warming enabled a warm session is used if available and
+	 * the start of the next session is scheduled in the background.
+	 */
+	private static WebDriver createDriver(String browser, String remoteUrl) {
+		if (!DriverPrewarmer.isEnabled()) {
+			return startDriver(browser, remoteUrl);
+		}
+		DriverPrewarmer prewarmer = DriverPrewarmer.getInstance(DriverFactoryExtended::destroyDriver);
+		String key = sessionKey(browser, remoteUrl);
+		WebDriver created = prewarmer.take(key).orElseGet(() -> startDriver(browser, remoteUrl));
+		prewarmer.schedule(key, () -> startDriver(browser, remoteUrl));
+		setDriver(created);
+		return created;
+	}
+
+	private static String sessionKey(String browser, String remoteUrl) {
+		return browser + "|" + remoteUrl;
+	}
+
+	private static WebDriver startDriver(String browser, String remoteUrl) {
 		URL url = getRemoteUrl(remoteUrl);
-		try {
-            return switch (browser) {
+		try (StartupMetrics.Phase ignored = StartupMetrics.phase(browser, !remoteUrl.isEmpty(), "total")) {
+            WebDriver created = switch (browser) {
                 case "firefox" ->
                         (remoteUrl.isEmpty()) ? getLocalFirefoxDriver() : getRemoteDriver(BrowserType.FIREFOX, url);
                 case "edge" -> (remoteUrl.isEmpty()) ? getLocalEdgeDriver() : getRemoteDriver(BrowserType.EDGE, url);
                 default -> (remoteUrl.isEmpty()) ? getLocalChromeDriver() : getRemoteDriver(BrowserType.CHROME, url);
             };
+			if (ResourceBlocker.isEnabled()) {
+				StartupMetrics.run(browser, !remoteUrl.isEmpty(), "resourceBlocker", () -> attachResourceBlocker(created));
+			}
+			if (BrowserLogCapture.isEnabled()) {
+				StartupMetrics.run(browser, !remoteUrl.isEmpty(), "logCapture", () -> attachLogCapture(created));
+			}
+			if (PageReadiness.needsEvents()) {
+				StartupMetrics.run(browser, !remoteUrl.isEmpty(), "pageReadiness", () -> attachPageReadiness(created));
+			}
+			if (ScriptLibrary.isPreloadEnabled() && needsBiDi()) {
+				StartupMetrics.run(browser, !remoteUrl.isEmpty(), "scriptLibrary", () -> attachScriptLibrary(created));
+			}
+			return created;
 		} catch (Exception e) {
 			throw new RuntimeException("Error at creation of the WebDrivers: " + e.getMessage(), e);
 		}
@@ -85,104 +132,227 @@ public class DriverFactoryExtended implements HasLogger {
 
 	/**
 	 * Initializes the WebDriver with Local ChromeDriver.
-	 * This method sets the ChromeDriver system property and starts the ChromeDriverService.
+	 * This method sets the ChromeDriver system property and uses the shared ChromeDriverService.
 	 * @return WebDriver instance
 	 */
 	public static WebDriver getLocalChromeDriver() {
-		setDriverProperty("chrome");
+		StartupMetrics.run("chrome", false, "driverProperty", () -> setDriverProperty("chrome"));
 		configureSeleniumLogging();
-		ChromeOptions options = getChromeOptions();
+		ChromeOptions options = StartupMetrics.time("chrome", false, "options", DriverFactoryExtended::getChromeOptions);
+		Path profile = StartupMetrics.time("chrome", false, "profileClone", () -> newChromeProfile(options));
 
-		// create and start ChromeDriverService
-		ChromeDriverService service = new ChromeDriverService.Builder()
-				.usingAnyFreePort()
-				.withSilent(true)
-				.build();
+		// if the shared service is available ... use it, else use it without
+		DriverService service = StartupMetrics.time("chrome", false, "serviceStart", () -> acquireService(BrowserType.CHROME));
 		try {
-			service.start();
-			driverService.set(service);
-		} catch (IOException e) {
-			logger.warn("Could not start ChromeDriverService, falling back to default ChromeDriver ctor", e);
+			StartupMetrics.run("chrome", false, "sessionCreate", () -> {
+				if (service instanceof ChromeDriverService chromeService) {
+					setDriver(startSession(service, () -> new ChromeDriver(chromeService, options)));
+				} else {
+					setDriver(new ChromeDriver(options));
+				}
+			});
+		} catch (RuntimeException e) {
+			if (profile != null) ChromeProfileTemplate.deleteProfile(profile);
+			throw e;
 		}
-
-		// if service start successful ... use it, else use it without
-		if (driverService.get() != null && driverService.get() instanceof ChromeDriverService && driverService.get().isRunning()) {
-			setDriver(new ChromeDriver((ChromeDriverService) driverService.get(), options));
-		} else {
-			setDriver(new ChromeDriver(options));
+		if (profile != null) {
+			sessionProfiles.put(getDriver(), profile);
 		}
-		return configureDriver(getDriver());
+		return StartupMetrics.time("chrome", false, "configure", () -> configureDriver(getDriver()));
 	}
 
 	/**
 	 * Initializes the WebDriver with Local FirefoxDriver.
-	 * This method sets the GeckoDriver system property and starts the GeckoDriverService.
+	 * This method sets the GeckoDriver system property and uses a dedicated GeckoDriverService
+	 * (geckodriver serves one session per process).
 	 * @return WebDriver instance
 	 */
 	public static WebDriver getLocalFirefoxDriver() {
-		setDriverProperty("firefox");
-		logGeckoDriverVersion();
-		FirefoxOptions options = getFirefoxOptions();
-
-		// create and start GeckoDriverService
-		GeckoDriverService service = new GeckoDriverService.Builder()
-				.usingDriverExecutable(new File(System.getProperty("webdriver.firefox.driver")))
-				.usingAnyFreePort()
-				.build();
-		try {
-			service.start();
-			driverService.set(service);
-		} catch (IOException e) {
-			logger.warn("Could not start GeckoDriverService, falling back to default FirefoxDriver ctor", e);
-		}
-
-		if (driverService.get() != null && driverService.get() instanceof GeckoDriverService && driverService.get().isRunning()) {
-			setDriver(new FirefoxDriver((GeckoDriverService) driverService.get(), options));
+		StartupMetrics.run("firefox", false, "driverProperty", () -> setDriverProperty("firefox"));
+		StartupMetrics.run("firefox", false, "versionProbe", DriverFactoryExtended::logGeckoDriverVersion);
+		FirefoxOptions options = StartupMetrics.time("firefox", false, "options", DriverFactoryExtended::getFirefoxOptions);
+
+		DriverService service = StartupMetrics.time("firefox", false, "serviceStart", () -> acquireService(BrowserType.FIREFOX));
+		if (service instanceof GeckoDriverService geckoService) {
+			setDriver(StartupMetrics.time("firefox", false, "sessionCreate",
+					() -> startSession(service, () -> new FirefoxDriver(geckoService, options))));
 			configureSeleniumLogging();
-			try(LogInspector logInspector = new LogInspector(getDriver())) {
-				// configureSeleniumLogging();
-				logInspector.onJavaScriptLog(logEntry -> {
-					log(logEntry.getLevel(), "[browser] " + normalizeLog(logEntry.getText()));
-				});
-
-			} catch (Exception e) {
-				logger.error("Error setting up Firefox log inspector", e);
-			}
 		} else {
-			if (getDriver() == null) {
-				setDriver(new FirefoxDriver(options));
-			}
+			setDriver(StartupMetrics.time("firefox", false, "sessionCreate", () -> new FirefoxDriver(options)));
 		}
-		return configureDriver(getDriver());
+		return StartupMetrics.time("firefox", false, "configure", () -> configureDriver(getDriver()));
 	}
 
 	/**
 	 * Initializes the WebDriver with Local EdgeDriver.
-	 * This method sets the EdgeDriver system property and starts the EdgeDriverService.
+	 * This method sets the EdgeDriver system property and uses the shared EdgeDriverService.
 	 * @return WebDriver instance
 	 */
 	public static WebDriver getLocalEdgeDriver() {
-		setDriverProperty("edge");
+		StartupMetrics.run("edge", false, "driverProperty", () -> setDriverProperty("edge"));
 		configureSeleniumLogging();
-		EdgeOptions options = getEdgeOptions();
+		EdgeOptions options = StartupMetrics.time("edge", false, "options", DriverFactoryExtended::getEdgeOptions);
+
+		DriverService service = StartupMetrics.time("edge", false, "serviceStart", () -> acquireService(BrowserType.EDGE));
+		StartupMetrics.run("edge", false, "sessionCreate", () -> {
+			if (service instanceof EdgeDriverService edgeService) {
+				setDriver(startSession(service, () -> new EdgeDriver(edgeService, options)));
+			} else {
+				setDriver(new EdgeDriver(options));
+			}
+		});
+		return StartupMetrics.time("edge", false, "configure", () -> configureDriver(getDriver()));
+	}
+
+	private static void attachResourceBlocker(WebDriver drv) {
+		Optional<WebDriver> bidiDriver = getBiDiDriver(drv);
+		if (bidiDriver.isEmpty()) {
+			logger.warn("Resource blocking needs WebDriver BiDi, which is not available for this session");
+			return;
+		}
+		try {
+			sessionBlockers.put(drv, ResourceBlocker.attach(bidiDriver.get()));
+		} catch (Exception e) {
+			logger.warn("Could not register resource blocker: {}", e.getMessage());
+		}
+	}
+
+	private static void attachLogCapture(WebDriver drv) {
+		Optional<WebDriver> bidiDriver = getBiDiDriver(drv);
+		if (bidiDriver.isEmpty()) {
+			logger.debug("No WebDriver BiDi for this session, browser logs are read at teardown");
+			return;
+		}
+		try {
+			sessionLogCaptures.put(drv, BrowserLogCapture.attach(bidiDriver.get()));
+		} catch (Exception e) {
+			logger.warn("Could not subscribe to browser logs: {}", e.getMessage());
+		}
+	}
+
+	private static void attachPageReadiness(WebDriver drv) {
+		Optional<WebDriver> bidiDriver = getBiDiDriver(drv);
+		if (bidiDriver.isEmpty()) {
+			logger.debug("No WebDriver BiDi for this session, page readiness is polled");
+			return;
+		}
+		try {
+			sessionReadiness.put(drv, PageReadiness.attach(bidiDriver.get()));
+		} catch (Exception e) {
+			logger.warn("Could not subscribe to navigation events: {}", e.getMessage());
+		}
+	}
+
+	private static void attachScriptLibrary(WebDriver drv) {
+		Optional<WebDriver> bidiDriver = getBiDiDriver(drv);
+		if (bidiDriver.isEmpty()) {
+			logger.debug("No WebDriver BiDi for this session, the script library is installed on first use");
+			return;
+		}
+		try {
+			sessionPreloads.put(drv, ScriptLibrary.preload(bidiDriver.get()));
+		} catch (Exception e) {
+			logger.warn("Could not register script library as preload script: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the navigation and network event tracker of the session, if it has one.
+	 */
+	static Optional<PageReadiness> getPageReadiness(WebDriver drv) {
+		return Optional.ofNullable(sessionReadiness.get(drv));
+	}
+
+	/**
+	 * Whether sessions request a WebDriver BiDi connection (Firefox always does).
+	 */
+	private static boolean needsBiDi() {
+		return ResourceBlocker.isEnabled() || BrowserLogCapture.isEnabled() || PageReadiness.needsEvents();
+	}
+
+	/**
+	 * Returns the browser log entries of the current thread's session captured since the last call.
+	 *
+	 * @return the entries or empty if the session has no log capture
+	 */
+	public static Optional<List<BrowserLogCapture.Entry>> drainBrowserLogs() {
+		WebDriver drv = getDriver();
+		BrowserLogCapture capture = drv == null ? null : sessionLogCaptures.get(drv);
+		return Optional.ofNullable(capture).map(BrowserLogCapture::drain);
+	}
+
+	/**
+	 * Returns the request counters of the resource blocker of the current thread's session since the
+	 * last call, e.g. per test.
+	 */
+	public static Optional<ResourceBlocker.Stats> drainResourceBlockerStats() {
+		WebDriver drv = getDriver();
+		ResourceBlocker blocker = drv == null ? null : sessionBlockers.get(drv);
+		return Optional.ofNullable(blocker).map(ResourceBlocker::drainStats);
+	}
+
+	/**
+	 * Returns a driver with WebDriver BiDi support for the session. Remote sessions are augmented.
+	 *
+	 * @return the driver or empty if the session has no BiDi connection (e.g. webSocketUrl not requested)
+	 */
+	static Optional<WebDriver> getBiDiDriver(WebDriver drv) {
+		WebDriver candidate = drv;
+		if (!(drv instanceof HasBiDi) && drv instanceof RemoteWebDriver) {
+			candidate = new Augmenter().augment(drv);
+		}
+		if (candidate instanceof HasBiDi hasBiDi && hasBiDi.maybeGetBiDi().isPresent()) {
+			return Optional.of(candidate);
+		}
+		return Optional.empty();
+	}
 
-		// create and start EdgeDriverService
-		EdgeDriverService service = new EdgeDriverService.Builder()
-				.usingAnyFreePort()
-				.build();
+	/**
+	 * Adds a copy of the {@link ChromeProfileTemplate} as user data dir if the template mode is enabled.
+	 *
+	 * @return the profile directory or null
+	 */
+	private static Path newChromeProfile(ChromeOptions options) {
+		if (!ChromeProfileTemplate.isEnabled()) {
+			return null;
+		}
+		try {
+			Path profile = ChromeProfileTemplate.newProfile(DriverFactoryExtended::getChromeOptions);
+			options.addArguments("--user-data-dir=" + profile, "--no-first-run", "--no-default-browser-check");
+			return profile;
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not create chrome profile from template, using an empty profile", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Acquires a driver service of the browser from the {@link DriverServiceRegistry}.
+	 *
+	 * @return the running service or null if it could not be started
+	 */
+	private static DriverService acquireService(BrowserType browser) {
 		try {
-			service.start();
-			driverService.set(service);
+			return DriverServiceRegistry.getInstance().acquire(browser);
 		} catch (IOException e) {
-			logger.warn("Could not start EdgeDriverService, falling back to default EdgeDriver ctor", e);
+			logger.warn("Could not start {} driver service, falling back to default driver ctor", browser, e);
+			return null;
 		}
+	}
 
-		if (driverService.get() != null && driverService.get() instanceof EdgeDriverService && driverService.get().isRunning()) {
-			setDriver(new EdgeDriver((EdgeDriverService) driverService.get(), options));
-		} else {
-			setDriver(new EdgeDriver(options));
+	/**
+	 * Creates a session on an acquired service. The service reference is released when the session
+	 * is destroyed or if the session could not be created.
+	 */
+	private static WebDriver startSession(DriverService service, Supplier<WebDriver> session) {
+		try {
+			WebDriver created = session.get();
+			sessionServices.put(created, service);
+			return created;
+		} catch (RuntimeException e) {
+			DriverServiceRegistry.getInstance().release(service);
+			throw e;
 		}
-		return configureDriver(getDriver());
 	}
 
 	/**
@@ -195,33 +365,49 @@ public class DriverFactoryExtended implements HasLogger {
 	 */
 	public static WebDriver getRemoteDriver(BrowserType browser, URL gridUrl) {
 		configureSeleniumLogging();
-		MutableCapabilities options = switch (browser) {
+		String name = browser.name().toLowerCase();
+		MutableCapabilities options = StartupMetrics.time(name, true, "options", () -> switch (browser) {
 			case CHROME -> getChromeOptions();
 			case FIREFOX -> getFirefoxOptions();
 			case EDGE -> getEdgeOptions();
 			default -> throw new IllegalArgumentException("Unsupported browser: " + browser);
-		};
-		try {
+		});
+		try (StartupMetrics.Phase ignored = StartupMetrics.phase(name, true, "sessionCreate")) {
 			setDriver(new RemoteWebDriver(gridUrl, options));
 			((RemoteWebDriver) getDriver()).setFileDetector(new LocalFileDetector());
 		} catch (Exception e) {
 			throw new RuntimeException("Could not connect to Selenium Grid", e);
 		}
-		return configureDriver(getDriver());
+		return StartupMetrics.time(name, true, "configure", () -> configureDriver(getDriver()));
 	}
 
+	/**
+	 * Sets the timeouts and logs the window size of a new session. In bootstrap mode both are
+	 * already part of the new-session capabilities, see {@link SessionBootstrap}.
+	 */
 	private static WebDriver configureDriver(WebDriver driver) {
+		String browser = System.getProperty("browser", "chrome").toLowerCase();
+		boolean remote = !System.getProperty("remoteUrl", "").trim().isEmpty();
+		if (SessionBootstrap.isEnabled()) {
+			SessionBootstrap.reportSaved(browser, remote);
+			return driver;
+		}
 
-		getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(20));
-		getDriver().manage().timeouts().scriptTimeout(Duration.ofMinutes(2));
-		getDriver().manage().timeouts().pageLoadTimeout(Duration.ofSeconds(10));
+		long start = System.nanoTime();
+		if (!SessionBootstrap.IMPLICIT_WAIT.isZero()) {
+			// zero is the W3C default
+			driver.manage().timeouts().implicitlyWait(SessionBootstrap.IMPLICIT_WAIT);
+		}
+		driver.manage().timeouts().scriptTimeout(SessionBootstrap.SCRIPT_TIMEOUT);
+		driver.manage().timeouts().pageLoadTimeout(SessionBootstrap.PAGE_LOAD_TIMEOUT);
 
 		try {
-			Dimension windowSize = getDriver().manage().window().getSize();
+			Dimension windowSize = driver.manage().window().getSize();
 			logger.info("Window size: {}x{}", windowSize.width, windowSize.height);
 		} catch (Exception e) {
 			logger.error(e.getMessage());
 		}
+		SessionBootstrap.recordClassic(browser, remote, System.nanoTime() - start);
 		return driver;
 	}
 
@@ -243,8 +429,9 @@ public class DriverFactoryExtended implements HasLogger {
 			options.addArguments("--user-data-dir=" + chromeUserDataDir);
 		}
 		setChromeDownloadOptions(options);
+		if (needsBiDi()) options.setCapability("webSocketUrl", true);
 		getProxyInformation().ifPresent(proxyInformation -> {options.setCapability("proxy", proxyInformation);});
-		return options;
+		return SessionBootstrap.apply(options);
 	}
 
 	private static void setChromeDownloadOptions(ChromeOptions chromeOptions) {
@@ -285,7 +472,7 @@ public class DriverFactoryExtended implements HasLogger {
 		));
 		if (OsCheck.getOperatingSystemType() == OsCheck.OSType.Linux) options.addArguments("-headless");
 		if (OsCheck.getOperatingSystemType() == OsCheck.OSType.Windows) {
-			findFirefoxBinaryOnWindows().ifPresent(options::setBinary);
+			DriverEnvironment.firefoxBinary().ifPresent(options::setBinary);
 		}
 			// Download prefs
 		options.addPreference("browser.download.folderList", 2);
@@ -296,7 +483,7 @@ public class DriverFactoryExtended implements HasLogger {
 		getProxyInformation().ifPresent(proxyInformation -> {options.setCapability("proxy", proxyInformation);});
 		options.setAcceptInsecureCerts(true);
 		options.setPageLoadStrategy(PageLoadStrategy.EAGER);
-		return options;
+		return SessionBootstrap.apply(options);
 	}
 
 	private static EdgeOptions getEdgeOptions() {
@@ -312,7 +499,8 @@ public class DriverFactoryExtended implements HasLogger {
 		options.setPageLoadStrategy(PageLoadStrategy.EAGER);
 		getProxyInformation().ifPresent(proxyInformation -> {options.setCapability("proxy", proxyInformation);});
 		options.setExperimentalOption("prefs", prefs);
-		return options;
+		if (needsBiDi()) options.setCapability("webSocketUrl", true);
+		return SessionBootstrap.apply(options);
 	}
 
 	private void configureChromeRemoteDownloadOptions(ChromeOptions chromeOptions) {
@@ -333,37 +521,27 @@ public class DriverFactoryExtended implements HasLogger {
 	}
 
 	private static void setDriverProperty(String browser) {
-		OsCheck.OSType os = OsCheck.getOperatingSystemType();
-		String osFolder = OsCheck.getDriverFolder();
-		String path = switch (browser) {
-			case "chrome" -> String.format(CHROME_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
-			case "firefox" -> String.format(FIREFOX_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
-			case "edge" -> String.format(EDGE_DRIVER, osFolder) + (os == OsCheck.OSType.Windows ? ".exe" : "");
-			default -> throw new IllegalArgumentException("Unknown browser: " + browser);
-		};
+		String path = DriverEnvironment.driverPath(browser);
 		System.setProperty("webdriver." + browser + ".driver", path);
 		logger.debug("Set {} driver: {}", browser, path);
 	}
 
+	/**
+	 * Takes one screenshot, attaches it to Allure and stores it in {@code target/screenshots}. The
+	 * files are written in the background, see {@link ScreenshotPipeline}.
+	 */
 	public static void saveScreenshot(String name) {
-		attachPageScreenshotToAllure(name);
-		File screenshot = ((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.FILE);
-		try {
-			File target = new File("target/screenshots/" + name + ".png");
-			Files.createDirectories(target.toPath().getParent());
-			Files.copy(screenshot.toPath(), target.toPath());
-		} catch (IOException e) {
-			logger.error(e.getMessage(), e);
-		}
+		byte[] screenshotBytes = ((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.BYTES);
+		ScreenshotPipeline.getInstance().submit(name, screenshotBytes, true);
 	}
 
 	public static void attachPageScreenshotToAllure(String name) {
 		byte[] screenshotBytes = ((TakesScreenshot) getDriver()).getScreenshotAs(OutputType.BYTES);
-		Allure.attachment(name, new ByteArrayInputStream(screenshotBytes));
+		ScreenshotPipeline.getInstance().submit(name, screenshotBytes, false);
 	}
 
 	public static void attachLogResponseToAllure(String responseName, String responseContent) {
-		Allure.addAttachment(responseName, "text/plain", responseContent);
+		AllureAttachmentStore.attach(responseName, "text/plain", ".txt", responseContent.getBytes(StandardCharsets.UTF_8));
 	}
 
 	public String getBrowserUserLanguage() {
@@ -380,33 +558,68 @@ public class DriverFactoryExtended implements HasLogger {
 		CHROME, FIREFOX, EDGE
 	}
 
+	/**
+	 * Quits the WebDriver of the current thread. If the driver was borrowed from the {@link DriverPool},
+	 * it is reset and returned to the pool instead.
+	 */
 	public static void quitDriver() {
 		WebDriver drv = driver.get();
 		if (drv != null) {
-			try {
-				drv.quit();
-			} catch (Exception e) {
-				logger.warn("Error quitting WebDriver", e);
+			if (!DriverPool.isEnabled() || !DriverPool.getInstance(DriverFactoryExtended::destroyDriver).release(drv)) {
+				destroyDriver(drv);
 			}
 			driver.remove();
 		}
 	}
 
-	public static void quitService() {
-		DriverService service = driverService.get();
-		if (service != null) {
+	/**
+	 * Quits the WebDriver, releases its reference on the shared DriverService and deletes its
+	 * profile copy.
+	 */
+	static void destroyDriver(WebDriver drv) {
+		ResourceBlocker blocker = sessionBlockers.remove(drv);
+		if (blocker != null) {
+			blocker.close();
+		}
+		BrowserLogCapture capture = sessionLogCaptures.remove(drv);
+		if (capture != null) {
+			capture.close();
+		}
+		PageReadiness readiness = sessionReadiness.remove(drv);
+		if (readiness != null) {
+			readiness.close();
+		}
+		Script preload = sessionPreloads.remove(drv);
+		if (preload != null) {
 			try {
-				if (service.isRunning()) {
-					service.stop();
-				}
+				preload.close();
 			} catch (Exception e) {
-				logger.warn("Error stopping driver service", e);
+				logger.debug("Could not close script module: {}", e.getMessage());
 			}
-			driverService.remove();
-			logger.info("Driver service stopped");
+		}
+		try {
+			drv.quit();
+		} catch (Exception e) {
+			logger.warn("Error quitting WebDriver", e);
+		}
+		DriverService service = sessionServices.remove(drv);
+		if (service != null) {
+			DriverServiceRegistry.getInstance().release(service);
+		}
+		Path profile = sessionProfiles.remove(drv);
+		if (profile != null) {
+			ChromeProfileTemplate.deleteProfile(profile);
 		}
 	}
 
+	/**
+	 * Driver services are owned by the {@link DriverServiceRegistry} and released with their sessions.
+	 * Idle services are stopped after a timeout or at JVM shutdown.
+	 */
+	public static void quitService() {
+		logger.debug("Driver services are released with their sessions, nothing to stop for this thread");
+	}
+
 	public static void quitDriverAndService() {
 		quitDriver();
 		quitService();
@@ -434,77 +647,26 @@ public class DriverFactoryExtended implements HasLogger {
 	}
 
 	/**
-	 * Logs geckodriver version from the executable.
+	 * Logs geckodriver version, probed once per driver executable by {@link DriverEnvironment}.
 	 */
 	private static void logGeckoDriverVersion() {
-		String geckoPath = System.getProperty("webdriver.firefox.driver");
-		if (geckoPath != null) {
-			try {
-				Process process = new ProcessBuilder(geckoPath, "--version")
-						.redirectErrorStream(true)
-						.start();
-				try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-					String line;
-					while ((line = reader.readLine()) != null) {
-						logger.debug("[GeckoDriver] {}", line);
-					}
-				}
-			} catch (IOException e) {
-				logger.warn("Could not get geckodriver version: {}", e.getMessage());
-			}
+		if (System.getProperty("webdriver.firefox.driver") != null) {
+			DriverEnvironment.driverVersion("firefox").ifPresentOrElse(
+					version -> version.lines().forEach(line -> logger.debug("[GeckoDriver] {}", line)),
+					() -> logger.warn("Could not get geckodriver version"));
 		} else {
 			logger.warn("webdriver.gecko.driver not set");
 		}
 	}
 
-	private static Optional<String> findFirefoxBinaryOnWindows() {
-		// Common paths
-		String[] candidates = new String[] {
-				System.getenv("MOZ_FIREFOX_BINARY"),                                  // allow override via env
-				"C:\\Program Files\\Mozilla Firefox\\firefox.exe",
-				"C:\\Program Files (x86)\\Mozilla Firefox\\firefox.exe"
-		};
-		for (String p : candidates) {
-			if (p != null && new java.io.File(p).isFile()) {
-				logger.debug("Found firefox binary on windows {}", p);
-				return Optional.of(p);
+	private static Optional<Proxy> getProxyInformation(){
+		if (ReplayProxy.isEnabled()) {
+			if (System.getProperty("remoteUrl", "").trim().isEmpty()) {
+				String address = ReplayProxy.getInstance().getAddress();
+				return Optional.of(new Proxy().setHttpProxy(address).setSslProxy(address));
 			}
+			logger.warn("The replay proxy runs in this JVM and is not reachable from Selenium Grid browsers, ignoring it");
 		}
-		// Try PATH
-		try {
-			Process proc = new ProcessBuilder("where", "firefox").redirectErrorStream(true).start();
-			try (java.io.BufferedReader r = new java.io.BufferedReader(new java.io.InputStreamReader(proc.getInputStream()))) {
-				String line;
-				while ((line = r.readLine()) != null) {
-					if (line.toLowerCase().endsWith("firefox.exe") && new java.io.File(line).isFile()) {
-						logger.debug("Found firefox binary on windows {}", line);
-						return Optional.of(line.trim());
-					}
-				}
-			}
-		} catch (Exception ignored) {}
-		logger.warn("Could not find firefox binary on windows");
-		return Optional.empty();
-	}
-
-	private static String normalizeLog(String input) {
-		return input
-				.replace("ΓÇÿ", "'")  // fix single quote mojibake
-				.replace("ΓÇ£", "\"") // fix double quote mojibake
-				.replace("ΓÇ¥", "\"") // fix double quote mojibake
-				.replace("ΓÇô", "-")  // fix dash mojibake
-				.replace("ΓÇó", "•")  // bullet point
-				.replace("ΓÇ£", "\"")
-				.replace("“", "\"")
-				.replace("”", "\"")
-				.replace("’", "'")
-				.replace("–", "-")
-				.replace("…", "...")
-				.replace("\u00A0", " ") // non-breaking space to normal space
-				.trim();
-	}
-
-	private static Optional<Proxy> getProxyInformation(){
 		String proxyHost = System.getProperty("http.proxyHost", System.getenv("HTTP_PROXY_HOST"));
 		String proxyPort = System.getProperty("http.proxyPort", System.getenv("HTTP_PROXY_PORT"));
 		if (proxyHost != null && proxyPort != null) {
@@ -0,0 +1,245 @@
+package com.example.config;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.chromium.HasCdp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of live WebDriver sessions, keyed by browser type and remote URL (the capabilities
+ * are derived from both, see {@link DriverFactoryExtended}).
+ * A test borrows a session in {@link DriverFactoryExtended#initDriver()} and returns it in
+ * {@link DriverFactoryExtended#quitDriver()}. On return the browser state is reset (cookies,
+ * local/session storage, extra windows, open alerts); sessions which cannot be reset are discarded.
+ * Cookies of all origins are cleared on Chrome and Edge; other browsers only clear the cookies of the
+ * origin loaded last. Local and session storage are only cleared for the origin loaded last, storage of
+ * other origins the test visited is kept for the next borrower. Downloads are not cleaned up, the
+ * download directory is shared by all sessions of the JVM and the forks.
+ * <p>
+ * Enabled with {@code -DdriverPool=true}. The size per key is set with {@code -DdriverPool.maxSize}
+ * (default 4), the max time to wait for a free session with {@code -DdriverPool.borrowTimeoutSeconds} (default 120).
+ */
+public class DriverPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(DriverPool.class);
+
+	private static volatile DriverPool instance;
+
+	private final int maxSize;
+	private final long borrowTimeoutNanos;
+	private final Consumer<WebDriver> destroyer;
+
+	private final ConcurrentMap<String, Partition> partitions = new ConcurrentHashMap<>();
+	private final Map<WebDriver, PooledSession> leased = Collections.synchronizedMap(new IdentityHashMap<>());
+
+	private final AtomicLong borrows = new AtomicLong();
+	private final AtomicLong reuses = new AtomicLong();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+	private final AtomicLong borrowWaitNanos = new AtomicLong();
+	private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+
+	DriverPool(int maxSize, long borrowTimeoutSeconds, Consumer<WebDriver> destroyer) {
+		this.maxSize = maxSize;
+		this.borrowTimeoutNanos = TimeUnit.SECONDS.toNanos(borrowTimeoutSeconds);
+		this.destroyer = destroyer;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("driverPool", "false"));
+	}
+
+	/**
+	 * Returns the JVM wide pool; its idle sessions are quit at JVM shutdown before the driver services stop.
+	 */
+	static DriverPool getInstance(Consumer<WebDriver> destroyer) {
+		if (instance == null) {
+			synchronized (DriverPool.class) {
+				if (instance == null) {
+					int maxSize = Integer.getInteger("driverPool.maxSize", 4);
+					long timeout = Long.getLong("driverPool.borrowTimeoutSeconds", 120);
+					instance = new DriverPool(maxSize, timeout, destroyer);
+					DriverServiceRegistry.getInstance().beforeStop(instance::close);
+					logger.info("WebDriver pool enabled with max {} sessions per browser", maxSize);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Borrows a live session for the given key. Waits for a free slot if the partition is exhausted.
+	 *
+	 * @param key     pool key, e.g. browser and remote url
+	 * @param factory creates a new session if no idle one is available
+	 * @return WebDriver instance
+	 */
+	public WebDriver borrow(String key, Supplier<WebDriver> factory) {
+		Partition partition = partitions.computeIfAbsent(key, k -> new Partition(maxSize));
+		long start = System.nanoTime();
+		try {
+			if (!partition.permits.tryAcquire(borrowTimeoutNanos, TimeUnit.NANOSECONDS)) {
+				throw new IllegalStateException("Timeout waiting for a pooled WebDriver session for " + key);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a pooled WebDriver session", e);
+		}
+		long waited = System.nanoTime() - start;
+		borrowWaitNanos.addAndGet(waited);
+		maxBorrowWaitNanos.accumulateAndGet(waited, Math::max);
+		borrows.incrementAndGet();
+
+		try {
+			PooledSession session;
+			while ((session = partition.idle.pollFirst()) != null) {
+				if (isAlive(session.driver)) {
+					reuses.incrementAndGet();
+					session.uses++;
+					lease(session);
+					logger.debug("Reusing pooled session for {} (use {})", key, session.uses);
+					return session.driver;
+				}
+				discard(session);
+			}
+			session = new PooledSession(key, factory.get());
+			created.incrementAndGet();
+			lease(session);
+			return session.driver;
+		} catch (RuntimeException e) {
+			partition.permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a borrowed session to the pool after resetting its state.
+	 *
+	 * @param driver the borrowed WebDriver
+	 * @return false if the driver was not borrowed from this pool
+	 */
+	public boolean release(WebDriver driver) {
+		PooledSession session = leased.remove(driver);
+		if (session == null) {
+			return false;
+		}
+		Partition partition = partitions.get(session.key);
+		try {
+			if (reset(session)) {
+				partition.idle.offerFirst(session);
+			} else {
+				discard(session);
+			}
+		} finally {
+			partition.permits.release();
+		}
+		return true;
+	}
+
+	public Stats getStats() {
+		long b = borrows.get();
+		return new Stats(b, reuses.get(), created.get(), discarded.get(),
+				b == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(borrowWaitNanos.get()) / (double) b,
+				TimeUnit.NANOSECONDS.toMillis(maxBorrowWaitNanos.get()),
+				b == 0 ? 0 : reuses.get() / (double) b);
+	}
+
+	/**
+	 * Quits all idle sessions. Borrowed sessions are quit when they are returned.
+	 */
+	public void close() {
+		partitions.values().forEach(partition -> {
+			PooledSession session;
+			while ((session = partition.idle.pollFirst()) != null) {
+				discard(session);
+			}
+		});
+		logger.info("WebDriver pool closed: {}", getStats());
+	}
+
+	private void lease(PooledSession session) {
+		leased.put(session.driver, session);
+	}
+
+	private void discard(PooledSession session) {
+		discarded.incrementAndGet();
+		destroyer.accept(session.driver);
+	}
+
+	private static boolean isAlive(WebDriver driver) {
+		try {
+			driver.getWindowHandle();
+			return true;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Brings the session back to a clean state: no alert, a single window on about:blank,
+	 * no cookies and no web storage of the current origin, see the class comment.
+	 */
+	private boolean reset(PooledSession session) {
+		WebDriver driver = session.driver;
+		try {
+			try {
+				driver.switchTo().alert().dismiss();
+			} catch (NoAlertPresentException ignored) {
+			}
+			Set<String> handles = driver.getWindowHandles();
+			String keep = handles.iterator().next();
+			for (String handle : handles) {
+				if (!handle.equals(keep)) {
+					driver.switchTo().window(handle).close();
+				}
+			}
+			driver.switchTo().window(keep);
+			// storage is per origin, so it has to be cleared before leaving the page
+			((JavascriptExecutor) driver).executeScript(
+					"try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+			if (driver instanceof HasCdp cdp) {
+				cdp.executeCdpCommand("Network.clearBrowserCookies", Map.of());
+			} else {
+				driver.manage().deleteAllCookies();
+			}
+			driver.get("about:blank");
+			return true;
+		} catch (Exception e) {
+			logger.warn("Could not reset pooled session, discarding it: {}", e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Pool statistics. The reuse rate is the share of borrows served by an already running session.
+	 */
+	public record Stats(long borrows, long reuses, long created, long discarded,
+						double avgBorrowWaitMillis, long maxBorrowWaitMillis, double reuseRate) {
+	}
+
+	private static final class Partition {
+		private final Semaphore permits;
+		private final BlockingDeque<PooledSession> idle = new LinkedBlockingDeque<>();
+
+		private Partition(int maxSize) {
+			this.permits = new Semaphore(maxSize, true);
+		}
+	}
+
+	private static final class PooledSession {
+		private final String key;
+		private final WebDriver driver;
+		private int uses = 1;
+
+		private PooledSession(String key, WebDriver driver) {
+			this.key = key;
+			this.driver = driver;
+		}
+	}
+}
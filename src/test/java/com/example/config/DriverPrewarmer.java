@@ -0,0 +1,138 @@
+package com.example.config;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Starts the next browser sessions on background virtual threads while the current test runs, so
+ * that {@link DriverFactoryExtended#initDriver()} can hand out an already configured driver.
+ * <p>
+ * Enabled with {@code -Dprewarm=true}. The number of sessions kept warm per browser is set with
+ * {@code -Dprewarm.depth} (default 1). Warm sessions are limited by {@code -Dprewarm.memoryCapMb}
+ * (default 1024) using an estimate of {@code -Dprewarm.sessionMemoryMb} (default 350) per browser,
+ * and no session is pre-warmed while the free physical memory is below that estimate.
+ */
+public class DriverPrewarmer {
+
+	private static final Logger logger = LoggerFactory.getLogger(DriverPrewarmer.class);
+
+	private static volatile DriverPrewarmer instance;
+
+	private final int depth = Integer.getInteger("prewarm.depth", 1);
+	private final long memoryCapMb = Long.getLong("prewarm.memoryCapMb", 1024);
+	private final long sessionMemoryMb = Long.getLong("prewarm.sessionMemoryMb", 350);
+
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ConcurrentMap<String, Deque<Future<WebDriver>>> warm = new ConcurrentHashMap<>();
+	/** Reserved slots per key, taken before a submit and given back by take. */
+	private final ConcurrentMap<String, AtomicInteger> slots = new ConcurrentHashMap<>();
+	private final AtomicInteger warmCount = new AtomicInteger();
+	private final Consumer<WebDriver> destroyer;
+
+	private DriverPrewarmer(Consumer<WebDriver> destroyer) {
+		this.destroyer = destroyer;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("prewarm", "false"));
+	}
+
+	static DriverPrewarmer getInstance(Consumer<WebDriver> destroyer) {
+		if (instance == null) {
+			synchronized (DriverPrewarmer.class) {
+				if (instance == null) {
+					instance = new DriverPrewarmer(destroyer);
+					// warm sessions are quit before their driver services stop
+					DriverServiceRegistry.getInstance().beforeStop(instance::close);
+					logger.info("WebDriver pre-warming enabled with depth {}", instance.depth);
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Takes a pre-warmed session. If the session is still starting, this waits for it, because it
+	 * will be ready sooner than a session started now.
+	 *
+	 * @param key session key, e.g. browser and remote url
+	 * @return the warm session or empty if none was pre-warmed or its start failed
+	 */
+	public Optional<WebDriver> take(String key) {
+		Deque<Future<WebDriver>> queue = warm.get(key);
+		Future<WebDriver> next = queue == null ? null : queue.pollFirst();
+		if (next == null) {
+			return Optional.empty();
+		}
+		slots.get(key).decrementAndGet();
+		warmCount.decrementAndGet();
+		try {
+			WebDriver driver = next.get();
+			logger.debug("Using pre-warmed session for {}", key);
+			return Optional.of(driver);
+		} catch (ExecutionException e) {
+			logger.warn("Pre-warming of session for {} failed: {}", key, e.getCause().getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Starts sessions in the background until the look-ahead depth or the memory cap is reached.
+	 *
+	 * @param key     session key, e.g. browser and remote url
+	 * @param factory creates and configures a new session
+	 */
+	public void schedule(String key, Supplier<WebDriver> factory) {
+		Deque<Future<WebDriver>> queue = warm.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+		AtomicInteger keySlots = slots.computeIfAbsent(key, k -> new AtomicInteger());
+		while (hasFreeMemory() && reserve(keySlots, depth)) {
+			if (!reserve(warmCount, (int) (memoryCapMb / sessionMemoryMb))) {
+				keySlots.decrementAndGet();
+				break;
+			}
+			queue.addLast(executor.submit(factory::get));
+			logger.debug("Pre-warming session for {}", key);
+		}
+	}
+
+	/**
+	 * Increments the counter if it is below the limit, atomically with the check.
+	 */
+	private static boolean reserve(AtomicInteger counter, int limit) {
+		return counter.getAndUpdate(n -> n < limit ? n + 1 : n) < limit;
+	}
+
+	private boolean hasFreeMemory() {
+		if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+			return os.getFreeMemorySize() / (1024 * 1024) >= sessionMemoryMb;
+		}
+		return true;
+	}
+
+	/**
+	 * Quits all sessions which were pre-warmed but never used.
+	 */
+	public void close() {
+		warm.values().forEach(queue -> {
+			Future<WebDriver> future;
+			while ((future = queue.pollFirst()) != null) {
+				try {
+					destroyer.accept(future.get(30, TimeUnit.SECONDS));
+				} catch (Exception e) {
+					future.cancel(true);
+				}
+			}
+		});
+		executor.shutdownNow();
+	}
+}
@@ -0,0 +1,268 @@
+package com.example.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openqa.selenium.chrome.ChromeDriverService;
+import org.openqa.selenium.edge.EdgeDriverService;
+import org.openqa.selenium.firefox.GeckoDriverService;
+import org.openqa.selenium.remote.service.DriverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.config.DriverFactoryExtended.BrowserType;
+
+/**
+ * JVM wide registry of driver services (chromedriver, msedgedriver). All sessions of a browser share
+ * one driver process, which is started lazily on the first {@link #acquire(BrowserType)}. geckodriver
+ * serves only one session per process, so every Firefox session gets a dedicated service, which is
+ * stopped when the session releases it.
+ * <p>
+ * References are counted per service process: a shared service without sessions is stopped after
+ * {@code -DdriverService.idleTimeoutSeconds} (default 60) or at JVM shutdown. Acquire only checks that
+ * the process is alive; the /status endpoint is probed in the background every
+ * {@code -DdriverService.healthCheckSeconds} (default 30). A dead or unhealthy service is retired: new
+ * sessions get a new process, the retired one is stopped once its last session released it. Each
+ * browser has its own lock, so starting a service does not block the other browsers.
+ */
+public class DriverServiceRegistry {
+
+	private static final Logger logger = LoggerFactory.getLogger(DriverServiceRegistry.class);
+
+	private static final DriverServiceRegistry instance = new DriverServiceRegistry();
+
+	private final Map<BrowserType, Entry> entries = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "driver-service-registry");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final long idleTimeoutSeconds = Long.getLong("driverService.idleTimeoutSeconds", 60);
+	private final List<Runnable> beforeStop = new CopyOnWriteArrayList<>();
+
+	private DriverServiceRegistry() {
+		long healthCheckSeconds = Long.getLong("driverService.healthCheckSeconds", 30);
+		scheduler.scheduleWithFixedDelay(this::checkHealth, healthCheckSeconds, healthCheckSeconds, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::stopAll, "driver-service-shutdown"));
+	}
+
+	public static DriverServiceRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns a running service for the browser and increments its reference count.
+	 * The driver system property (e.g. webdriver.chrome.driver) must be set before.
+	 *
+	 * @param browser the browser type
+	 * @return running DriverService
+	 * @throws IOException if the service could not be started
+	 */
+	public DriverService acquire(BrowserType browser) throws IOException {
+		Entry entry = entries.computeIfAbsent(browser, Entry::new);
+		if (!isShared(browser)) {
+			DriverService service = buildService(browser);
+			service.start();
+			synchronized (entry) {
+				entry.references.put(service, 1);
+				entry.starts++;
+			}
+			return service;
+		}
+		synchronized (entry) {
+			if (entry.pendingStop != null) {
+				entry.pendingStop.cancel(false);
+				entry.pendingStop = null;
+			}
+			if (entry.current != null && !entry.current.isRunning()) {
+				logger.warn("{} driver service is not running, starting a new one", browser);
+				retire(entry, entry.current);
+			}
+			if (entry.current == null) {
+				DriverService service = buildService(browser);
+				service.start();
+				entry.current = service;
+				entry.starts++;
+				logger.info("Started shared {} driver service at {}", browser, service.getUrl());
+			}
+			entry.references.merge(entry.current, 1, Integer::sum);
+			return entry.current;
+		}
+	}
+
+	/**
+	 * Decrements the reference count of the service. A dedicated or retired service without references
+	 * is stopped at once, the current shared service after the idle timeout unless it is acquired again.
+	 *
+	 * @param service a service returned by {@link #acquire(BrowserType)}
+	 */
+	public void release(DriverService service) {
+		for (Entry entry : entries.values()) {
+			synchronized (entry) {
+				Integer references = entry.references.get(service);
+				if (references == null) {
+					continue;
+				}
+				if (references > 1) {
+					entry.references.put(service, references - 1);
+				} else {
+					entry.references.remove(service);
+					if (service != entry.current) {
+						stopQuietly(service);
+					} else {
+						entry.pendingStop = scheduler.schedule(() -> stopIfIdle(entry), idleTimeoutSeconds, TimeUnit.SECONDS);
+					}
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Registers a task run at JVM shutdown before the services are stopped, e.g. to quit sessions which
+	 * still need their service.
+	 */
+	public void beforeStop(Runnable task) {
+		beforeStop.add(task);
+	}
+
+	/**
+	 * Whether sessions of the browser share one service process; geckodriver allows one session per process.
+	 */
+	private static boolean isShared(BrowserType browser) {
+		return browser != BrowserType.FIREFOX;
+	}
+
+	/**
+	 * Stops new sessions from getting the service; it is stopped now if it has no sessions, otherwise
+	 * by the release of its last session.
+	 */
+	private static void retire(Entry entry, DriverService service) {
+		if (entry.current == service) {
+			entry.current = null;
+		}
+		if (!entry.references.containsKey(service)) {
+			stopQuietly(service);
+		}
+	}
+
+	private void stopIfIdle(Entry entry) {
+		synchronized (entry) {
+			DriverService service = entry.current;
+			if (service != null && !entry.references.containsKey(service)) {
+				entry.current = null;
+				entry.pendingStop = null;
+				stopQuietly(service);
+				logger.info("Stopped idle {} driver service", entry.browser);
+			}
+		}
+	}
+
+	/**
+	 * Probes the shared services outside the locks and retires the unhealthy ones.
+	 */
+	private void checkHealth() {
+		for (Entry entry : entries.values()) {
+			DriverService service;
+			synchronized (entry) {
+				service = entry.current;
+			}
+			if (service == null || isHealthy(service)) {
+				continue;
+			}
+			synchronized (entry) {
+				if (entry.current == service) {
+					logger.warn("{} driver service is not healthy, new sessions get a new one", entry.browser);
+					retire(entry, service);
+				}
+			}
+		}
+	}
+
+	private void stopAll() {
+		for (Runnable task : beforeStop) {
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				logger.warn("Error before stopping driver services", e);
+			}
+		}
+		for (Entry entry : entries.values()) {
+			synchronized (entry) {
+				Set<DriverService> services = Collections.newSetFromMap(new IdentityHashMap<>());
+				services.addAll(entry.references.keySet());
+				if (entry.current != null) services.add(entry.current);
+				services.forEach(DriverServiceRegistry::stopQuietly);
+				if (!services.isEmpty()) {
+					logger.info("Stopped {} {} driver service(s) ({} starts)", services.size(), entry.browser, entry.starts);
+				}
+				entry.references.clear();
+				entry.current = null;
+			}
+		}
+		scheduler.shutdownNow();
+	}
+
+	private static DriverService buildService(BrowserType browser) {
+		return switch (browser) {
+			case CHROME -> new ChromeDriverService.Builder()
+					.usingAnyFreePort()
+					.withSilent(true)
+					.build();
+			case FIREFOX -> new GeckoDriverService.Builder()
+					.usingDriverExecutable(new File(System.getProperty("webdriver.firefox.driver")))
+					.usingAnyFreePort()
+					.build();
+			case EDGE -> new EdgeDriverService.Builder()
+					.usingAnyFreePort()
+					.build();
+		};
+	}
+
+	/**
+	 * A service is healthy if its process is alive and the /status endpoint answers.
+	 */
+	private static boolean isHealthy(DriverService service) {
+		if (!service.isRunning()) {
+			return false;
+		}
+		try {
+			HttpURLConnection connection = (HttpURLConnection) URI.create(service.getUrl() + "/status").toURL().openConnection();
+			connection.setConnectTimeout(2000);
+			connection.setReadTimeout(2000);
+			try {
+				return connection.getResponseCode() == 200;
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	private static void stopQuietly(DriverService service) {
+		try {
+			service.stop();
+		} catch (Exception e) {
+			logger.warn("Error stopping driver service", e);
+		}
+	}
+
+	private static final class Entry {
+		private final BrowserType browser;
+		/** Sessions per service process, by identity. */
+		private final Map<DriverService, Integer> references = new IdentityHashMap<>();
+		/** The shared service new sessions get, null for Firefox. */
+		private DriverService current;
+		private int starts;
+		private ScheduledFuture<?> pendingStop;
+
+		private Entry(BrowserType browser) {
+			this.browser = browser;
+		}
+	}
+}
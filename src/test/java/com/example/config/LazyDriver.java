@@ -0,0 +1,119 @@
+package com.example.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.interactions.Interactive;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WebDriver handle which starts the session on the first command. Tests which are skipped (e.g. by
+ * assumptions) or never touch the browser do not pay for a session.
+ * <p>
+ * {@code quit()} and {@code close()} of a handle without session are no-ops; {@code toString()},
+ * {@code equals()} and {@code hashCode()} never start a session. The real driver is returned by
+ * {@link #getWrappedDriver()}, which starts the session as well.
+ */
+public interface LazyDriver extends WebDriver, JavascriptExecutor, TakesScreenshot, HasCapabilities, Interactive, WrapsDriver {
+
+	/**
+	 * @return true if the session was started
+	 */
+	boolean isMaterialized();
+
+	static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("lazyDriver", "true"));
+	}
+
+	/**
+	 * Creates a handle.
+	 *
+	 * @param factory    starts the session
+	 * @param onFirstUse called with the new driver before the first command, e.g. to load the start page; if
+	 *                   it fails the session stays attached to the handle and is quit with it
+	 * @return the handle
+	 */
+	static LazyDriver of(Supplier<WebDriver> factory, Consumer<WebDriver> onFirstUse) {
+		return (LazyDriver) Proxy.newProxyInstance(LazyDriver.class.getClassLoader(),
+				new Class<?>[] {LazyDriver.class}, new Handler(factory, onFirstUse));
+	}
+
+	/**
+	 * Returns the real driver behind a handle without starting a session.
+	 *
+	 * @return the driver, the argument itself if it is no handle, or null if the session was not started
+	 */
+	static WebDriver unwrap(WebDriver driver) {
+		if (driver instanceof LazyDriver lazy) {
+			return lazy.isMaterialized() ? lazy.getWrappedDriver() : null;
+		}
+		return driver;
+	}
+
+	final class Handler implements InvocationHandler {
+
+		private static final Logger logger = LoggerFactory.getLogger(LazyDriver.class);
+
+		private final Supplier<WebDriver> factory;
+		private final Consumer<WebDriver> onFirstUse;
+		private volatile WebDriver target;
+
+		private Handler(Supplier<WebDriver> factory, Consumer<WebDriver> onFirstUse) {
+			this.factory = factory;
+			this.onFirstUse = onFirstUse;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "isMaterialized":
+					return target != null;
+				case "getWrappedDriver":
+					return materialize();
+				case "toString":
+					return target == null ? "LazyDriver (no session)" : "LazyDriver -> " + target;
+				case "hashCode":
+					return System.identityHashCode(proxy);
+				case "equals":
+					return proxy == args[0];
+				case "quit":
+				case "close":
+					if (target == null) {
+						return null;
+					}
+					break;
+				default:
+					break;
+			}
+			try {
+				return method.invoke(materialize(), args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+
+		private WebDriver materialize() {
+			WebDriver current = target;
+			if (current != null) {
+				return current;
+			}
+			synchronized (this) {
+				if (target == null) {
+					long start = System.nanoTime();
+					WebDriver created = factory.get();
+					// set before onFirstUse, so a session whose first page load fails is still quit by the teardown
+					target = created;
+					onFirstUse.accept(created);
+					logger.debug("Started lazy session in {} ms", (System.nanoTime() - start) / 1_000_000);
+				}
+				return target;
+			}
+		}
+	}
+}
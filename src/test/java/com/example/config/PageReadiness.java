@@ -0,0 +1,242 @@
+package com.example.config;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.bidi.module.BrowsingContextInspector;
+import org.openqa.selenium.bidi.module.Network;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Waits after a navigation until the page is ready, as defined by {@code -Dnav.readiness}:
+ * <ul>
+ *     <li>{@code domcontentloaded} (default): the document is parsed, which the eager page load strategy
+ *     already waits for</li>
+ *     <li>{@code load}: the load event fired</li>
+ *     <li>{@code networkidle}: no request in flight for {@code -Dnav.idleMs} (default 500)</li>
+ *     <li>{@code selector:<css>}: an element matching the CSS selector is present</li>
+ * </ul>
+ * Load and network activity are tracked with WebDriver BiDi events per session; without BiDi the
+ * conditions are polled in the page. A condition not met within {@code -Dnav.timeoutMs} (default 10000)
+ * is logged and the test continues. The timing of each navigation is logged.
+ */
+public class PageReadiness implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PageReadiness.class);
+
+	private static final long POLL_MILLIS = 50;
+
+	private final Network network;
+	private final BrowsingContextInspector contexts;
+	private final Set<String> inflight = ConcurrentHashMap.newKeySet();
+	private final AtomicLong loadEvents = new AtomicLong();
+	private volatile long lastActivityNanos = System.nanoTime();
+
+	private PageReadiness(Network network, BrowsingContextInspector contexts) {
+		this.network = network;
+		this.contexts = contexts;
+	}
+
+	enum Condition { DOM_CONTENT_LOADED, LOAD, NETWORK_IDLE, SELECTOR }
+
+	static Condition getCondition() {
+		String readiness = System.getProperty("nav.readiness", "domcontentloaded").trim().toLowerCase(Locale.ROOT);
+		if (readiness.startsWith("selector:")) {
+			return Condition.SELECTOR;
+		}
+		return switch (readiness) {
+			case "load" -> Condition.LOAD;
+			case "networkidle" -> Condition.NETWORK_IDLE;
+			default -> Condition.DOM_CONTENT_LOADED;
+		};
+	}
+
+	/**
+	 * @return true if the condition is tracked with BiDi events
+	 */
+	static boolean needsEvents() {
+		Condition condition = getCondition();
+		return condition == Condition.LOAD || condition == Condition.NETWORK_IDLE;
+	}
+
+	/**
+	 * Subscribes to the network and navigation events of the session.
+	 *
+	 * @param bidiDriver a driver with BiDi support
+	 * @return the tracker, to be closed with the session
+	 */
+	static PageReadiness attach(WebDriver bidiDriver) {
+		PageReadiness readiness = new PageReadiness(new Network(bidiDriver), new BrowsingContextInspector(bidiDriver));
+		readiness.network.onBeforeRequestSent(event -> readiness.activity(() -> readiness.inflight.add(event.getRequest().getRequestId())));
+		readiness.network.onResponseCompleted(event -> readiness.activity(() -> readiness.inflight.remove(event.getRequest().getRequestId())));
+		readiness.network.onFetchError(event -> readiness.activity(() -> readiness.inflight.remove(event.getRequest().getRequestId())));
+		readiness.contexts.onBrowsingContextLoaded(info -> readiness.activity(readiness.loadEvents::incrementAndGet));
+		return readiness;
+	}
+
+	private void activity(Runnable update) {
+		update.run();
+		lastActivityNanos = System.nanoTime();
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Loads the url, retries once on a WebDriver error, and waits for the configured readiness condition.
+	 *
+	 * @param driver the driver of the session
+	 * @param url    the url to load
+	 */
+	public static void navigate(WebDriver driver, String url) {
+		Optional<PageReadiness> tracker = DriverFactoryExtended.getPageReadiness(driver);
+		tracker.ifPresent(PageReadiness::reset);
+		long loadsBefore = tracker.map(t -> t.loadEvents.get()).orElse(0L);
+		long start = System.nanoTime();
+		try {
+			driver.get(url);
+		} catch (WebDriverException e) {
+			// one quick retry
+			try { driver.navigate().to(url); } catch (Exception ignored) {}
+		}
+		long navigated = System.nanoTime();
+
+		Condition condition = getCondition();
+		long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("nav.timeoutMs", 10_000));
+		long idleNanos = TimeUnit.MILLISECONDS.toNanos(Long.getLong("nav.idleMs", 500));
+		boolean ready = switch (condition) {
+			case DOM_CONTENT_LOADED -> poll(() -> !"loading".equals(readyState(driver)), timeoutNanos);
+			// a load event may come from a frame, the top-level document is checked once after it
+			case LOAD -> (tracker.isEmpty() || tracker.get().await(() -> tracker.get().loadEvents.get() > loadsBefore, timeoutNanos))
+					&& poll(() -> "complete".equals(readyState(driver)), timeoutNanos - (System.nanoTime() - navigated));
+			case NETWORK_IDLE -> tracker.isPresent()
+					? tracker.get().awaitIdle(idleNanos, timeoutNanos)
+					: pollResourcesStable(driver, idleNanos, timeoutNanos);
+			case SELECTOR -> {
+				By selector = By.cssSelector(System.getProperty("nav.readiness").trim().substring("selector:".length()));
+				yield poll(() -> !driver.findElements(selector).isEmpty(), timeoutNanos);
+			}
+		};
+		long end = System.nanoTime();
+		if (ready) {
+			logger.info("Navigation to {}: get {} ms, {} after {} ms{}", url, millis(navigated - start),
+					condition, millis(end - start), tracker.isPresent() ? "" : " (polled)");
+		} else {
+			logger.warn("Navigation to {}: {} not reached within {} ms", url, condition, millis(timeoutNanos));
+		}
+	}
+
+	private void reset() {
+		inflight.clear();
+		lastActivityNanos = System.nanoTime();
+	}
+
+	/**
+	 * Waits until the condition holds, re-checking on every event and at least every {@value #POLL_MILLIS} ms.
+	 */
+	private synchronized boolean await(BooleanSupplier condition, long timeoutNanos) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (!condition.getAsBoolean()) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			try {
+				wait(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, POLL_MILLIS));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized boolean awaitIdle(long idleNanos, long timeoutNanos) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (true) {
+			long now = System.nanoTime();
+			long idleFor = now - lastActivityNanos;
+			if (inflight.isEmpty() && idleFor >= idleNanos) {
+				return true;
+			}
+			long remaining = deadline - now;
+			if (remaining <= 0) {
+				return false;
+			}
+			long waitNanos = inflight.isEmpty() ? idleNanos - idleFor : remaining;
+			try {
+				wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(Math.min(waitNanos, remaining))));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	private static boolean poll(BooleanSupplier condition, long timeoutNanos) {
+		long deadline = System.nanoTime() + timeoutNanos;
+		while (true) {
+			try {
+				if (condition.getAsBoolean()) return true;
+			} catch (WebDriverException ignored) {
+				// page still navigating
+			}
+			if (System.nanoTime() >= deadline) {
+				return false;
+			}
+			try {
+				Thread.sleep(POLL_MILLIS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Network idle without BiDi: the number of resource timing entries did not change for the idle time.
+	 */
+	private static boolean pollResourcesStable(WebDriver driver, long idleNanos, long timeoutNanos) {
+		long[] last = {-1, System.nanoTime()};
+		return poll(() -> {
+			Object count = ((JavascriptExecutor) driver).executeScript(
+					"return document.readyState === 'complete' ? performance.getEntriesByType('resource').length : -1");
+			long current = count instanceof Number number ? number.longValue() : -1;
+			long now = System.nanoTime();
+			if (current < 0 || current != last[0]) {
+				last[0] = current;
+				last[1] = now;
+				return false;
+			}
+			return now - last[1] >= idleNanos;
+		}, timeoutNanos);
+	}
+
+	private static String readyState(WebDriver driver) {
+		return String.valueOf(((JavascriptExecutor) driver).executeScript("return document.readyState"));
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	@Override
+	public void close() {
+		try {
+			contexts.close();
+			network.close();
+		} catch (Exception e) {
+			logger.debug("Could not close page readiness tracker: {}", e.getMessage());
+		}
+	}
+}
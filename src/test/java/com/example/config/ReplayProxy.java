@@ -0,0 +1,549 @@
+package com.example.config;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import javax.net.ssl.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process HTTP(S) record and replay proxy for local browsers.
+ * <p>
+ * In record mode ({@code -DreplayProxy=record}) every request is forwarded upstream and the response is
+ * captured. Each new response is appended to the store file as soon as it is recorded, under a file lock
+ * so several forks can record into the same store, and a killed fork keeps what it recorded so far. Only
+ * the first response per request is recorded by a fork; when forks recorded the same request, the last
+ * appended response wins and the duplicates are compacted away when a fork shuts down.
+ * <p>
+ * In replay mode ({@code -DreplayProxy=replay}) responses are served from the memory-mapped store without
+ * any upstream connection; requests which were not recorded get a 504. The store file is set with
+ * {@code -DreplayProxy.store} (default {@code target/replay/recording.store}).
+ * <p>
+ * HTTPS is intercepted with a self-signed certificate, which the browsers accept because the sessions
+ * are created with {@code acceptInsecureCerts}. The store is a compact binary format instead of a HAR
+ * file: a HAR file has to be parsed, while the binary store is mapped and its bodies are served without
+ * decoding.
+ */
+public class ReplayProxy implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReplayProxy.class);
+
+	private static final int STORE_MAGIC = 0x52504C59; // "RPLY"
+	private static final int STORE_VERSION = 1;
+	private static final String KEYSTORE_PASSWORD = "changeit";
+
+	/** Hop-by-hop and framing headers which are not forwarded. */
+	private static final Set<String> SKIPPED_HEADERS = Set.of("connection", "proxy-connection", "keep-alive",
+			"transfer-encoding", "te", "trailer", "upgrade", "content-length", "host", "expect", "proxy-authorization");
+
+	enum Mode { RECORD, REPLAY }
+
+	private static volatile ReplayProxy instance;
+
+	private final Mode mode;
+	private final Path store;
+	private final ServerSocket serverSocket;
+	private final SSLContext sslContext;
+	private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+
+	private final HttpClient upstream;
+	private final Set<String> recorded = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, Slot> index = new HashMap<>();
+	private MappedByteBuffer mapped;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private ReplayProxy(Mode mode, Path store) throws IOException, GeneralSecurityException {
+		this.mode = mode;
+		this.store = store;
+		this.sslContext = createSslContext(store.toAbsolutePath().getParent().resolve("replay-proxy.p12"));
+		if (mode == Mode.REPLAY) {
+			loadStore();
+			this.upstream = null;
+		} else {
+			HttpClient.Builder builder = HttpClient.newBuilder()
+					.followRedirects(HttpClient.Redirect.NEVER)
+					.connectTimeout(Duration.ofSeconds(10));
+			String proxyHost = System.getProperty("http.proxyHost", System.getenv("HTTP_PROXY_HOST"));
+			String proxyPort = System.getProperty("http.proxyPort", System.getenv("HTTP_PROXY_PORT"));
+			if (proxyHost != null && proxyPort != null) {
+				builder.proxy(ProxySelector.of(new InetSocketAddress(proxyHost, Integer.parseInt(proxyPort))));
+			}
+			this.upstream = builder.build();
+		}
+		this.serverSocket = new ServerSocket(Integer.getInteger("replayProxy.port", 0), 128, InetAddress.getLoopbackAddress());
+		Thread acceptor = new Thread(this::acceptLoop, "replay-proxy-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		logger.info("Replay proxy in {} mode on {} using {}", mode, getAddress(), store);
+	}
+
+	public static boolean isEnabled() {
+		return !System.getProperty("replayProxy", "").isBlank();
+	}
+
+	/**
+	 * Returns the JVM wide proxy, started on first use and closed at JVM shutdown.
+	 */
+	public static ReplayProxy getInstance() {
+		if (instance == null) {
+			synchronized (ReplayProxy.class) {
+				if (instance == null) {
+					Mode mode = Mode.valueOf(System.getProperty("replayProxy").trim().toUpperCase(Locale.ROOT));
+					Path store = Path.of(System.getProperty("replayProxy.store", "target/replay/recording.store"));
+					try {
+						instance = new ReplayProxy(mode, store);
+					} catch (IOException | GeneralSecurityException e) {
+						throw new IllegalStateException("Could not start replay proxy", e);
+					}
+					Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "replay-proxy-shutdown"));
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * @return host:port of the proxy
+	 */
+	public String getAddress() {
+		return serverSocket.getInetAddress().getHostAddress() + ":" + serverSocket.getLocalPort();
+	}
+
+	private void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				connections.submit(() -> handle(socket));
+			} catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					logger.warn("Replay proxy accept failed: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	private void handle(Socket socket) {
+		try (socket) {
+			serve(socket, null);
+		} catch (IOException e) {
+			logger.trace("Replay proxy connection closed: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Serves the requests of a (keep-alive) connection. Within a CONNECT tunnel the authority of the
+	 * tunnel is used to build the absolute URL.
+	 */
+	private void serve(Socket socket, String tunnelAuthority) throws IOException {
+		InputStream in = new BufferedInputStream(socket.getInputStream());
+		OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+		while (true) {
+			Request request = readRequest(in);
+			if (request == null) {
+				return;
+			}
+
+			if ("CONNECT".equals(request.method())) {
+				out.write("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+				out.flush();
+				String target = request.target();
+				String host = target.substring(0, target.lastIndexOf(':') < 0 ? target.length() : target.lastIndexOf(':'));
+				SSLSocket tls = (SSLSocket) sslContext.getSocketFactory().createSocket(socket, host, socket.getPort(), false);
+				tls.setUseClientMode(false);
+				tls.startHandshake();
+				serve(tls, target);
+				return;
+			}
+
+			String url = absoluteUrl(tunnelAuthority, request.target());
+			Response response = mode == Mode.RECORD
+					? record(request.method(), url, request.headers(), request.body())
+					: replay(request.method(), url, request.body());
+			writeResponse(out, request.method(), response);
+			if (request.isClose()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reads the request line, the headers and the body of the next request of a connection.
+	 *
+	 * @return the request, or null at the end of the connection or for a malformed request line
+	 */
+	static Request readRequest(InputStream in) throws IOException {
+		String requestLine = readLine(in);
+		if (requestLine == null || requestLine.isEmpty()) {
+			return null;
+		}
+		String[] parts = requestLine.split(" ");
+		if (parts.length < 3) {
+			return null;
+		}
+		List<String[]> headers = readHeaders(in);
+		// a CONNECT request has no body, the TLS handshake follows
+		byte[] body = "CONNECT".equals(parts[0]) ? new byte[0] : readBody(in, headers);
+		return new Request(parts[0], parts[1], headers, body);
+	}
+
+	/**
+	 * @return the absolute URL of a request target; within a CONNECT tunnel the target is only the path
+	 */
+	static String absoluteUrl(String tunnelAuthority, String target) {
+		return tunnelAuthority == null ? target : "https://" + tunnelAuthority.replaceFirst(":443$", "") + target;
+	}
+
+	private Response record(String method, String url, List<String[]> headers, byte[] body) {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+				.timeout(Duration.ofSeconds(30))
+				.method(method, body.length == 0 ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+		for (String[] header : headers) {
+			if (!SKIPPED_HEADERS.contains(header[0].toLowerCase(Locale.ROOT))) {
+				try {
+					request.header(header[0], header[1]);
+				} catch (IllegalArgumentException ignored) {
+					// restricted by the HttpClient
+				}
+			}
+		}
+		try {
+			HttpResponse<byte[]> response = upstream.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+			StringBuilder responseHeaders = new StringBuilder();
+			response.headers().map().forEach((name, values) -> {
+				if (!name.startsWith(":") && !SKIPPED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+					values.forEach(value -> responseHeaders.append(name).append(": ").append(value).append("\r\n"));
+				}
+			});
+			Recorded entry = new Recorded(response.statusCode(), responseHeaders.toString(), response.body());
+			String key = key(method, url, body);
+			if (recorded.add(key)) {
+				try {
+					appendEntry(store, key, entry);
+				} catch (IOException e) {
+					recorded.remove(key);
+					logger.warn("Could not append {} {} to replay store {}: {}", method, url, store, e.getMessage());
+				}
+			}
+			return new Response(entry.status, entry.headers, ByteBuffer.wrap(entry.body));
+		} catch (IOException e) {
+			logger.debug("Upstream request {} {} failed: {}", method, url, e.getMessage());
+			return new Response(502, "Content-Type: text/plain\r\n", ByteBuffer.wrap(("Upstream failed: " + e.getMessage()).getBytes(StandardCharsets.UTF_8)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return new Response(502, "", ByteBuffer.allocate(0));
+		}
+	}
+
+	private Response replay(String method, String url, byte[] body) {
+		Slot slot = index.get(key(method, url, body));
+		if (slot == null) {
+			misses.incrementAndGet();
+			logger.debug("Not recorded: {} {}", method, url);
+			return new Response(504, "Content-Type: text/plain\r\n", ByteBuffer.wrap("Not recorded".getBytes(StandardCharsets.UTF_8)));
+		}
+		hits.incrementAndGet();
+		return new Response(slot.status, slot.headers, mapped.slice(slot.bodyOffset, slot.bodyLength));
+	}
+
+	private static void writeResponse(OutputStream out, String method, Response response) throws IOException {
+		String head = "HTTP/1.1 " + response.status + " \r\n" + response.headers
+				+ "Content-Length: " + response.body.remaining() + "\r\n\r\n";
+		out.write(head.getBytes(StandardCharsets.ISO_8859_1));
+		if (!"HEAD".equals(method)) {
+			ByteBuffer body = response.body;
+			if (body.hasArray()) {
+				out.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+			} else {
+				byte[] chunk = new byte[16 * 1024];
+				while (body.hasRemaining()) {
+					int length = Math.min(chunk.length, body.remaining());
+					body.get(chunk, 0, length);
+					out.write(chunk, 0, length);
+				}
+			}
+		}
+		out.flush();
+	}
+
+	static String key(String method, String url, byte[] body) {
+		if (body.length == 0) {
+			return method + " " + url;
+		}
+		try {
+			return method + " " + url + " " + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b == '\n') {
+				break;
+			}
+			if (b != '\r') {
+				line.write(b);
+			}
+			if (line.size() > 64 * 1024) {
+				throw new IOException("Header line too long");
+			}
+		}
+		if (b == -1 && line.size() == 0) {
+			return null;
+		}
+		return line.toString(StandardCharsets.ISO_8859_1);
+	}
+
+	static List<String[]> readHeaders(InputStream in) throws IOException {
+		List<String[]> headers = new ArrayList<>();
+		String line;
+		while ((line = readLine(in)) != null && !line.isEmpty()) {
+			int colon = line.indexOf(':');
+			if (colon > 0) {
+				headers.add(new String[] {line.substring(0, colon).trim(), line.substring(colon + 1).trim()});
+			}
+		}
+		return headers;
+	}
+
+	static byte[] readBody(InputStream in, List<String[]> headers) throws IOException {
+		for (String[] header : headers) {
+			if (header[0].equalsIgnoreCase("content-length")) {
+				return in.readNBytes(Integer.parseInt(header[1]));
+			}
+			if (header[0].equalsIgnoreCase("transfer-encoding") && header[1].toLowerCase(Locale.ROOT).contains("chunked")) {
+				ByteArrayOutputStream body = new ByteArrayOutputStream();
+				int size;
+				while ((size = Integer.parseInt(readLine(in).split(";")[0].trim(), 16)) > 0) {
+					body.write(in.readNBytes(size));
+					readLine(in);
+				}
+				readHeaders(in); // trailers
+				return body.toByteArray();
+			}
+		}
+		return new byte[0];
+	}
+
+	/**
+	 * Maps the store and indexes its entries. The bodies stay in the mapped file.
+	 */
+	private void loadStore() throws IOException {
+		if (!Files.isRegularFile(store)) {
+			throw new FileNotFoundException("No recording found at " + store + ", run with -DreplayProxy=record first");
+		}
+		try (FileChannel channel = FileChannel.open(store, StandardOpenOption.READ)) {
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		readEntries(mapped, (key, slot) -> index.put(key, slot));
+		logger.info("Loaded {} recorded responses from {}", index.size(), store);
+	}
+
+	/**
+	 * Reads the entries of a store. A torn entry at the end, left by a fork killed while appending, is skipped.
+	 */
+	static void readEntries(ByteBuffer buffer, BiConsumer<String, Slot> consumer) throws IOException {
+		if (buffer.limit() < 8 || buffer.getInt(0) != STORE_MAGIC || buffer.getInt(4) != STORE_VERSION) {
+			throw new IOException("Unsupported replay store format");
+		}
+		int position = 8;
+		try {
+			while (position < buffer.limit()) {
+				int keyLength = buffer.getInt(position);
+				String key = StandardCharsets.UTF_8.decode(buffer.slice(position + 4, keyLength)).toString();
+				int next = position + 4 + keyLength;
+				int status = buffer.getInt(next);
+				int headersLength = buffer.getInt(next + 4);
+				String headers = StandardCharsets.ISO_8859_1.decode(buffer.slice(next + 8, headersLength)).toString();
+				next += 8 + headersLength;
+				int bodyLength = buffer.getInt(next);
+				if (bodyLength < 0 || next + 4 + bodyLength > buffer.limit()) {
+					throw new IndexOutOfBoundsException(bodyLength);
+				}
+				consumer.accept(key, new Slot(status, headers, next + 4, bodyLength));
+				position = next + 4 + bodyLength;
+			}
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			logger.warn("Replay store has a torn entry at offset {}, skipping the rest", position);
+		}
+	}
+
+	/**
+	 * Appends an entry to the store, writing the header first if the store is new. Forks are serialized by
+	 * the lock file; the entry is written with one write so a reader never sees half of it.
+	 */
+	static void appendEntry(Path store, String key, Recorded entry) throws IOException {
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		byte[] headers = entry.headers().getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer buffer = ByteBuffer.allocate(16 + keyBytes.length + headers.length + entry.body().length);
+		buffer.putInt(keyBytes.length).put(keyBytes)
+				.putInt(entry.status())
+				.putInt(headers.length).put(headers)
+				.putInt(entry.body().length).put(entry.body());
+		Files.createDirectories(store.toAbsolutePath().getParent());
+		synchronized (ReplayProxy.class) { // the file lock is held per JVM, not per thread
+			try (FileChannel lockChannel = openLock(store);
+				 FileLock ignored = lockChannel.lock();
+				 FileChannel channel = FileChannel.open(store, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+				if (channel.size() == 0) {
+					writeFully(channel, ByteBuffer.allocate(8).putInt(STORE_MAGIC).putInt(STORE_VERSION).flip());
+				}
+				writeFully(channel, buffer.flip());
+			}
+		}
+	}
+
+	/**
+	 * Rewrites the store without the responses which were replaced by later appends of other forks.
+	 */
+	static void compactStore(Path store) throws IOException {
+		if (!Files.isRegularFile(store)) {
+			return;
+		}
+		synchronized (ReplayProxy.class) {
+			try (FileChannel lockChannel = openLock(store);
+				 FileLock ignored = lockChannel.lock()) {
+				ByteBuffer existing = ByteBuffer.wrap(Files.readAllBytes(store));
+				Map<String, Recorded> merged = new LinkedHashMap<>();
+				int[] count = {0};
+				readEntries(existing, (key, slot) -> {
+					byte[] body = new byte[slot.bodyLength];
+					existing.get(slot.bodyOffset, body);
+					merged.put(key, new Recorded(slot.status, slot.headers, body));
+					count[0]++;
+				});
+				if (count[0] == merged.size()) {
+					return;
+				}
+
+				Path tmp = Files.createTempFile(store.toAbsolutePath().getParent(), "replay", ".tmp");
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+					out.writeInt(STORE_MAGIC);
+					out.writeInt(STORE_VERSION);
+					for (Map.Entry<String, Recorded> entry : merged.entrySet()) {
+						byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+						byte[] headers = entry.getValue().headers.getBytes(StandardCharsets.ISO_8859_1);
+						out.writeInt(key.length);
+						out.write(key);
+						out.writeInt(entry.getValue().status);
+						out.writeInt(headers.length);
+						out.write(headers);
+						out.writeInt(entry.getValue().body.length);
+						out.write(entry.getValue().body);
+					}
+				}
+				Files.move(tmp, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				logger.info("Compacted replay store {} from {} to {} responses", store, count[0], merged.size());
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static FileChannel openLock(Path store) throws IOException {
+		return FileChannel.open(store.resolveSibling(store.getFileName() + ".lock"),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+	}
+
+	/**
+	 * Creates the TLS context for intercepted HTTPS connections with a self-signed key, generated once by keytool.
+	 */
+	private static SSLContext createSslContext(Path keystore) throws IOException, GeneralSecurityException {
+		if (!Files.isRegularFile(keystore)) {
+			Files.createDirectories(keystore.getParent());
+			Path tmp = keystore.resolveSibling(keystore.getFileName() + "." + ProcessHandle.current().pid());
+			Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+					"-genkeypair", "-alias", "replay-proxy", "-keyalg", "RSA", "-keysize", "2048", "-validity", "3650",
+					"-dname", "CN=replay-proxy", "-ext", "SAN=dns:localhost", "-storetype", "PKCS12",
+					"-keystore", tmp.toString(), "-storepass", KEYSTORE_PASSWORD, "-keypass", KEYSTORE_PASSWORD)
+					.redirectErrorStream(true)
+					.start();
+			try {
+				keytool.getInputStream().transferTo(OutputStream.nullOutputStream());
+				if (keytool.waitFor() != 0) {
+					throw new IOException("keytool failed to create " + keystore);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while creating " + keystore, e);
+			}
+			try {
+				Files.move(tmp, keystore, StandardCopyOption.ATOMIC_MOVE);
+			} catch (FileAlreadyExistsException e) {
+				Files.deleteIfExists(tmp); // created by another fork
+			}
+		}
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream in = Files.newInputStream(keystore)) {
+			keyStore.load(in, KEYSTORE_PASSWORD.toCharArray());
+		}
+		KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+		keyManagers.init(keyStore, KEYSTORE_PASSWORD.toCharArray());
+		SSLContext context = SSLContext.getInstance("TLS");
+		context.init(keyManagers.getKeyManagers(), null, null);
+		return context;
+	}
+
+	@Override
+	public void close() {
+		try {
+			serverSocket.close();
+		} catch (IOException ignored) {
+		}
+		connections.shutdownNow();
+		if (mode == Mode.RECORD && !recorded.isEmpty()) {
+			logger.info("Recorded {} responses into {}", recorded.size(), store);
+			try {
+				compactStore(store);
+			} catch (IOException e) {
+				logger.error("Could not compact replay store {}", store, e);
+			}
+		} else if (mode == Mode.REPLAY) {
+			logger.info("Replay proxy served {} recorded responses, {} requests were not recorded", hits.get(), misses.get());
+		}
+	}
+
+	record Recorded(int status, String headers, byte[] body) {
+	}
+
+	record Slot(int status, String headers, int bodyOffset, int bodyLength) {
+	}
+
+	record Request(String method, String target, List<String[]> headers, byte[] body) {
+
+		boolean isClose() {
+			return headers.stream().anyMatch(h -> h[0].equalsIgnoreCase("connection") && h[1].equalsIgnoreCase("close"));
+		}
+	}
+
+	private record Response(int status, String headers, ByteBuffer body) {
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.config;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReplayProxyTest {
+
+	@TempDir
+	Path dir;
+
+	private static InputStream stream(String data) {
+		return new ByteArrayInputStream(data.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	@Test
+	void readsRequestLineHeadersAndContentLengthBody() throws IOException {
+		InputStream in = stream("POST http://example.com/login HTTP/1.1\r\n"
+				+ "Host: example.com\r\n"
+				+ "Content-Type:  application/x-www-form-urlencoded \r\n"
+				+ "Content-Length: 7\r\n"
+				+ "\r\n"
+				+ "user=abGET http://example.com/ HTTP/1.1\r\n\r\n");
+
+		ReplayProxy.Request post = ReplayProxy.readRequest(in);
+		assertEquals("POST", post.method());
+		assertEquals("http://example.com/login", post.target());
+		assertEquals(3, post.headers().size());
+		assertArrayEquals(new String[] {"Content-Type", "application/x-www-form-urlencoded"}, post.headers().get(1));
+		assertEquals("user=ab", new String(post.body(), StandardCharsets.ISO_8859_1));
+		assertFalse(post.isClose());
+
+		ReplayProxy.Request get = ReplayProxy.readRequest(in);
+		assertEquals("GET", get.method());
+		assertEquals(0, get.body().length);
+		assertNull(ReplayProxy.readRequest(in));
+	}
+
+	@Test
+	void readsChunkedBodyWithExtensionsAndTrailers() throws IOException {
+		InputStream in = stream("PUT /upload HTTP/1.1\r\n"
+				+ "Transfer-Encoding: gzip, Chunked\r\n"
+				+ "Connection: close\r\n"
+				+ "\r\n"
+				+ "4\r\nWiki\r\n"
+				+ "5;name=value\r\npedia\r\n"
+				+ "E\r\n in\r\n\r\nchunks.\r\n"
+				+ "0\r\n"
+				+ "Checksum: abc\r\n"
+				+ "\r\n");
+
+		ReplayProxy.Request put = ReplayProxy.readRequest(in);
+		assertEquals("Wikipedia in\r\n\r\nchunks.", new String(put.body(), StandardCharsets.ISO_8859_1));
+		assertTrue(put.isClose());
+		assertNull(ReplayProxy.readRequest(in));
+	}
+
+	@Test
+	void rejectsMalformedRequestLine() throws IOException {
+		assertNull(ReplayProxy.readRequest(stream("GARBAGE\r\n\r\n")));
+		assertNull(ReplayProxy.readRequest(stream("\r\n")));
+		assertNull(ReplayProxy.readRequest(stream("")));
+	}
+
+	@Test
+	void connectRequestHasNoBody() throws IOException {
+		InputStream in = stream("CONNECT example.com:443 HTTP/1.1\r\nHost: example.com:443\r\n\r\n\u0016\u0003\u0001");
+
+		ReplayProxy.Request connect = ReplayProxy.readRequest(in);
+		assertEquals("example.com:443", connect.target());
+		assertEquals(0, connect.body().length);
+		assertEquals(0x16, in.read(), "the TLS handshake must not be consumed");
+	}
+
+	@Test
+	void buildsAbsoluteUrlInsideTunnel() {
+		assertEquals("http://example.com/a", ReplayProxy.absoluteUrl(null, "http://example.com/a"));
+		assertEquals("https://example.com/a?b=c", ReplayProxy.absoluteUrl("example.com:443", "/a?b=c"));
+		assertEquals("https://example.com:8443/a", ReplayProxy.absoluteUrl("example.com:8443", "/a"));
+	}
+
+	@Test
+	void keyIncludesBodyHash() {
+		assertEquals("GET http://example.com/", ReplayProxy.key("GET", "http://example.com/", new byte[0]));
+		assertNotEquals(ReplayProxy.key("POST", "http://example.com/", "a".getBytes()),
+				ReplayProxy.key("POST", "http://example.com/", "b".getBytes()));
+	}
+
+	@Test
+	void storeRoundTrip() throws IOException {
+		Path store = dir.resolve("replay/recording.store");
+		ReplayProxy.appendEntry(store, "GET http://example.com/", new ReplayProxy.Recorded(200, "Content-Type: text/html\r\n", "<html>".getBytes()));
+		ReplayProxy.appendEntry(store, "GET http://example.com/empty", new ReplayProxy.Recorded(204, "", new byte[0]));
+
+		Map<String, String> read = read(store);
+		assertEquals(Map.of("GET http://example.com/", "200|Content-Type: text/html\r\n|<html>",
+				"GET http://example.com/empty", "204||"), read);
+	}
+
+	@Test
+	void compactionKeepsLastAppendedResponse() throws IOException {
+		Path store = dir.resolve("recording.store");
+		ReplayProxy.appendEntry(store, "GET /a", new ReplayProxy.Recorded(200, "", "first".getBytes()));
+		ReplayProxy.appendEntry(store, "GET /b", new ReplayProxy.Recorded(200, "", "b".getBytes()));
+		ReplayProxy.appendEntry(store, "GET /a", new ReplayProxy.Recorded(200, "", "second".getBytes()));
+		long appended = Files.size(store);
+
+		ReplayProxy.compactStore(store);
+
+		assertTrue(Files.size(store) < appended);
+		assertEquals(Map.of("GET /a", "200||second", "GET /b", "200||b"), read(store));
+	}
+
+	@Test
+	void skipsTornEntryAtTheEnd() throws IOException {
+		Path store = dir.resolve("recording.store");
+		ReplayProxy.appendEntry(store, "GET /a", new ReplayProxy.Recorded(200, "", "complete".getBytes()));
+		ReplayProxy.appendEntry(store, "GET /b", new ReplayProxy.Recorded(200, "", "torn body".getBytes()));
+		byte[] bytes = Files.readAllBytes(store);
+		Files.write(store, Arrays.copyOf(bytes, bytes.length - 4));
+
+		assertEquals(Map.of("GET /a", "200||complete"), read(store));
+	}
+
+	private static Map<String, String> read(Path store) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(store));
+		Map<String, String> entries = new LinkedHashMap<>();
+		ReplayProxy.readEntries(buffer, (key, slot) -> entries.put(key, slot.status() + "|" + slot.headers() + "|"
+				+ StandardCharsets.UTF_8.decode(buffer.slice(slot.bodyOffset(), slot.bodyLength()))));
+		return entries;
+	}
+}
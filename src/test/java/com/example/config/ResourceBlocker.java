@@ -0,0 +1,209 @@
+package com.example.config;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.module.Network;
+import org.openqa.selenium.bidi.network.AddInterceptParameters;
+import org.openqa.selenium.bidi.network.BeforeRequestSent;
+import org.openqa.selenium.bidi.network.ContinueRequestParameters;
+import org.openqa.selenium.bidi.network.InterceptPhase;
+import org.openqa.selenium.bidi.network.UrlPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cancels requests for resources the tests never use (images, fonts, trackers) at the browser network
+ * layer, using a WebDriver BiDi network intercept (Chrome, Edge and Firefox).
+ * <p>
+ * Enabled with {@code -DblockResources=true}. The comma separated lists {@code -DblockResources.block}
+ * and {@code -DblockResources.allow} contain file extensions (".png") or URL substrings ("doubleclick.net");
+ * the allow-list wins. The counters are per session and are reset by {@link #drainStats()}.
+ * <p>
+ * An intercepted request is paused until the JVM answers it, one event and one command, which costs
+ * little locally but a grid round trip remotely. If the block list contains only host names, only
+ * requests to exactly these hosts are intercepted (subdomains must be listed); a list with file
+ * extensions (the default) needs every request to be intercepted, because BiDi URL patterns cannot
+ * match extensions. The handling time is reported as {@link Stats#interceptMillis()}.
+ */
+public class ResourceBlocker implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResourceBlocker.class);
+
+	private static final Pattern HOST_NAME = Pattern.compile("^[a-z0-9-]+(\\.[a-z0-9-]+)+$");
+
+	private static final String DEFAULT_BLOCK_LIST = ".png,.jpg,.jpeg,.gif,.svg,.webp,.ico,.woff,.woff2,.ttf,.otf,"
+			+ "google-analytics.com,googletagmanager.com,doubleclick.net,fonts.googleapis.com,fonts.gstatic.com";
+
+	private final Network network;
+	private final List<String> blockList;
+	private final List<String> allowList;
+
+	private final ConcurrentMap<String, AtomicLong> blocked = new ConcurrentHashMap<>();
+	private final AtomicLong allowedRequests = new AtomicLong();
+	private final AtomicLong allowedBytes = new AtomicLong();
+	private final AtomicLong interceptNanos = new AtomicLong();
+
+	private ResourceBlocker(Network network, List<String> blockList, List<String> allowList) {
+		this.network = network;
+		this.blockList = blockList;
+		this.allowList = allowList;
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("blockResources", "false"));
+	}
+
+	/**
+	 * Registers the network intercept on the session.
+	 *
+	 * @param bidiDriver a driver with BiDi support
+	 * @return the blocker, to be closed with the session
+	 */
+	static ResourceBlocker attach(WebDriver bidiDriver) {
+		Network network = new Network(bidiDriver);
+		ResourceBlocker blocker = new ResourceBlocker(network,
+				parseList(System.getProperty("blockResources.block", DEFAULT_BLOCK_LIST)),
+				parseList(System.getProperty("blockResources.allow", "")));
+		network.onBeforeRequestSent(blocker::onBeforeRequestSent);
+		network.onResponseCompleted(response -> {
+			if (!response.isBlocked()) {
+				blocker.allowedBytes.addAndGet(Math.max(0, response.getResponseData().getBytesReceived()));
+			}
+		});
+		AddInterceptParameters intercept = new AddInterceptParameters(InterceptPhase.BEFORE_REQUEST_SENT);
+		hostPatterns(blocker.blockList).ifPresentOrElse(intercept::urlPatterns,
+				() -> logger.debug("Block list contains extensions or paths, intercepting all requests"));
+		network.addIntercept(intercept);
+		return blocker;
+	}
+
+	/**
+	 * URL patterns for a block list of host names only, empty if an entry is not a host name.
+	 */
+	static Optional<List<UrlPattern>> hostPatterns(List<String> blockList) {
+		if (blockList.isEmpty() || !blockList.stream().allMatch(HOST_NAME.asPredicate())) {
+			return Optional.empty();
+		}
+		return Optional.of(blockList.stream().map(host -> new UrlPattern().hostname(host)).toList());
+	}
+
+	private void onBeforeRequestSent(BeforeRequestSent event) {
+		if (!event.isBlocked()) {
+			return;
+		}
+		long start = System.nanoTime();
+		String requestId = event.getRequest().getRequestId();
+		String url = event.getRequest().getUrl();
+		try {
+			if (shouldBlock(url)) {
+				blocked.computeIfAbsent(category(url), k -> new AtomicLong()).incrementAndGet();
+				network.failRequest(requestId);
+				logger.trace("Blocked {}", url);
+			} else {
+				allowedRequests.incrementAndGet();
+				network.continueRequest(new ContinueRequestParameters(requestId));
+			}
+		} catch (Exception e) {
+			// a request left paused hangs the page until the page load timeout
+			logger.debug("Could not handle intercepted request {}: {}", url, e.getMessage());
+			release(requestId, url);
+		} finally {
+			interceptNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	private void release(String requestId, String url) {
+		try {
+			network.continueRequest(new ContinueRequestParameters(requestId));
+		} catch (Exception e) {
+			try {
+				network.failRequest(requestId);
+			} catch (Exception failed) {
+				logger.warn("Intercepted request {} could not be released: {}", url, failed.getMessage());
+			}
+		}
+	}
+
+	boolean shouldBlock(String url) {
+		String normalized = url.toLowerCase(Locale.ROOT);
+		String path = path(normalized);
+		return blockList.stream().anyMatch(pattern -> matches(pattern, normalized, path))
+				&& allowList.stream().noneMatch(pattern -> matches(pattern, normalized, path));
+	}
+
+	private static boolean matches(String pattern, String url, String path) {
+		return pattern.startsWith(".") ? path.endsWith(pattern) : url.contains(pattern);
+	}
+
+	/**
+	 * File extension of the URL path, or the host for URLs without extension.
+	 */
+	private static String category(String url) {
+		String path = path(url.toLowerCase(Locale.ROOT));
+		int dot = path.lastIndexOf('.');
+		if (dot > path.lastIndexOf('/')) {
+			return path.substring(dot);
+		}
+		try {
+			return Objects.requireNonNullElse(URI.create(url).getHost(), "other");
+		} catch (IllegalArgumentException e) {
+			return "other";
+		}
+	}
+
+	private static String path(String url) {
+		int end = url.length();
+		int query = url.indexOf('?');
+		if (query >= 0) end = query;
+		int fragment = url.indexOf('#');
+		if (fragment >= 0 && fragment < end) end = fragment;
+		return url.substring(0, end);
+	}
+
+	private static List<String> parseList(String list) {
+		return Arrays.stream(list.split(","))
+				.map(String::trim)
+				.map(s -> s.startsWith("*.") ? s.substring(1) : s)
+				.map(s -> s.toLowerCase(Locale.ROOT))
+				.filter(s -> !s.isEmpty())
+				.toList();
+	}
+
+	/**
+	 * Returns the counters since the last call and resets them.
+	 */
+	public Stats drainStats() {
+		Map<String, Long> blockedByCategory = new TreeMap<>();
+		blocked.forEach((category, count) -> {
+			long value = count.getAndSet(0);
+			if (value > 0) blockedByCategory.put(category, value);
+		});
+		return new Stats(blockedByCategory.values().stream().mapToLong(Long::longValue).sum(), blockedByCategory,
+				allowedRequests.getAndSet(0), allowedBytes.getAndSet(0), TimeUnit.NANOSECONDS.toMillis(interceptNanos.getAndSet(0)));
+	}
+
+	@Override
+	public void close() {
+		try {
+			network.close();
+		} catch (Exception e) {
+			logger.debug("Could not close network module: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Request counters. The size of a blocked resource is unknown because it never reaches the network,
+	 * therefore only the bytes received for allowed requests are counted. {@code interceptMillis} is the
+	 * time the JVM spent answering intercepted requests, which the browser waited for.
+	 */
+	public record Stats(long blockedRequests, Map<String, Long> blockedByCategory, long allowedRequests, long allowedBytes,
+						long interceptMillis) {
+	}
+}
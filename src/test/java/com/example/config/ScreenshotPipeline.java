@@ -0,0 +1,174 @@
+package com.example.config;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.utils.AllureAttachmentStore;
+
+/**
+ * Writes screenshots in the background. The screenshot is captured once on the test thread, which also
+ * registers the Allure attachment, because Allure tracks the current test per thread. Identical
+ * screenshots are stored once, see {@link AllureAttachmentStore}. Downscaling,
+ * recompression and the file writes run on a bounded executor which is drained at JVM shutdown. If the
+ * queue is full, the test thread does the work itself.
+ * <p>
+ * Settings: {@code -Dscreenshot.maxWidth} (0 = original size), {@code -Dscreenshot.format} (png or jpg),
+ * {@code -Dscreenshot.jpegQuality} (default 0.8), {@code -Dscreenshot.threads} (default 2) and
+ * {@code -Dscreenshot.queueSize} (default 16).
+ */
+public final class ScreenshotPipeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScreenshotPipeline.class);
+
+	private static final Path SCREENSHOT_DIR = Path.of("target", "screenshots");
+
+	private static final ScreenshotPipeline instance = new ScreenshotPipeline();
+
+	private final int maxWidth = Integer.getInteger("screenshot.maxWidth", 0);
+	private final boolean jpeg = "jpg".equalsIgnoreCase(System.getProperty("screenshot.format", "png"))
+			|| "jpeg".equalsIgnoreCase(System.getProperty("screenshot.format", "png"));
+	private final float jpegQuality = Float.parseFloat(System.getProperty("screenshot.jpegQuality", "0.8"));
+	private final ThreadPoolExecutor executor;
+
+	private ScreenshotPipeline() {
+		// no temp file cache, it is closed by a shutdown hook of its own while the queue is drained
+		ImageIO.setUseCache(false);
+		int threads = Math.max(1, Integer.getInteger("screenshot.threads", 2));
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, Integer.getInteger("screenshot.queueSize", 16))),
+				r -> {
+					Thread thread = new Thread(r, "screenshot-pipeline-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		Runtime.getRuntime().addShutdownHook(new Thread(this::drain, "screenshot-pipeline-shutdown"));
+	}
+
+	public static ScreenshotPipeline getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Attaches the screenshot to the current Allure test or step and optionally stores it in
+	 * {@code target/screenshots}.
+	 *
+	 * @param name   attachment and file name
+	 * @param png    the captured screenshot
+	 * @param toDisk true to store it in {@code target/screenshots}
+	 */
+	public void submit(String name, byte[] png, boolean toDisk) {
+		String extension = jpeg ? ".jpg" : ".png";
+		// named after the captured bytes and the processing settings, processing is deterministic
+		String source = AllureAttachmentStore.sourceFor(png, "-" + settings() + extension);
+		AllureAttachmentStore.attachSource(name, jpeg ? "image/jpeg" : "image/png", source);
+		executor.execute(() -> {
+			try {
+				Path stored = AllureAttachmentStore.getResultsDir().resolve(source);
+				if (!AllureAttachmentStore.exists(source)) {
+					AllureAttachmentStore.write(source, process(png));
+				}
+				if (toDisk) {
+					Path target = SCREENSHOT_DIR.resolve(name + extension);
+					Files.createDirectories(target.getParent());
+					Files.copy(stored, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			} catch (IOException | RuntimeException e) {
+				if (!AllureAttachmentStore.exists(source)) {
+					logger.error("Could not write screenshot {}, its Allure attachment points to the missing file {}",
+							name, source, e);
+				} else {
+					logger.error("Could not store screenshot {} in {}: {}", name, SCREENSHOT_DIR, e.getMessage(), e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return the processing settings, e.g. {@code w1280-q80}, which determine the written bytes
+	 */
+	private String settings() {
+		return (maxWidth > 0 ? "w" + maxWidth : "w0") + (jpeg ? "-q" + Math.round(jpegQuality * 100) : "");
+	}
+
+	private byte[] process(byte[] png) throws IOException {
+		if (maxWidth <= 0 && !jpeg) {
+			return png;
+		}
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		if (image == null) {
+			return png;
+		}
+		if (maxWidth > 0 && image.getWidth() > maxWidth) {
+			image = scale(image, maxWidth, Math.max(1, image.getHeight() * maxWidth / image.getWidth()));
+		} else if (jpeg && image.getColorModel().hasAlpha()) {
+			image = scale(image, image.getWidth(), image.getHeight()); // JPEG has no alpha channel
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(png.length);
+		if (jpeg) {
+			writeJpeg(image, out);
+		} else {
+			ImageIO.write(image, "png", out);
+		}
+		return out.toByteArray();
+	}
+
+	private static BufferedImage scale(BufferedImage source, int width, int height) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		try {
+			graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			graphics.drawImage(source, 0, 0, width, height, null);
+		} finally {
+			graphics.dispose();
+		}
+		return scaled;
+	}
+
+	private void writeJpeg(BufferedImage image, ByteArrayOutputStream out) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+			param.setCompressionQuality(jpegQuality);
+			writer.setOutput(stream);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * Waits for the queued screenshots, called at JVM shutdown.
+	 */
+	private void drain() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+				logger.warn("Screenshot pipeline not drained, {} screenshots lost", executor.getQueue().size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
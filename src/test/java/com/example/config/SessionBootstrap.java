@@ -0,0 +1,148 @@
+package com.example.config;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.chromium.ChromiumOptions;
+import org.openqa.selenium.firefox.FirefoxOptions;
+import org.openqa.selenium.remote.AbstractDriverOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Single round-trip session bootstrap: timeouts, window size and page-load strategy are sent with the
+ * new-session capabilities instead of being set by separate commands after the session is created.
+ * <p>
+ * Enabled with {@code -DsessionBootstrap=true}; the window size is set with {@code -DwindowSize}
+ * (default 1920x1080). The post-creation configuration time of classic sessions is kept in memory,
+ * merged into {@value #BASELINE_FILE} once at JVM shutdown and used to report the latency saved per
+ * bootstrapped session.
+ */
+public final class SessionBootstrap {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionBootstrap.class);
+
+	/** Zero by default, lookups wait explicitly with {@link com.example.utils.SmartWait}. */
+	static final Duration IMPLICIT_WAIT = Duration.ofMillis(Long.getLong("wait.implicitMillis", 0));
+	static final Duration SCRIPT_TIMEOUT = Duration.ofMinutes(2);
+	static final Duration PAGE_LOAD_TIMEOUT = Duration.ofSeconds(10);
+
+	/** Number of commands which are not sent in bootstrap mode: the timeouts and the window size. */
+	static final int SAVED_ROUND_TRIPS = IMPLICIT_WAIT.isZero() ? 3 : 4;
+
+	private static final String BASELINE_FILE = "target/session-bootstrap-baseline.properties";
+
+	private static volatile Properties cachedBaseline;
+	private static final Map<String, Long> recorded = new ConcurrentHashMap<>();
+	private static final AtomicBoolean hookRegistered = new AtomicBoolean();
+
+	private SessionBootstrap() {
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("sessionBootstrap", "false"));
+	}
+
+	public static Dimension getWindowSize() {
+		String[] size = System.getProperty("windowSize", "1920x1080").toLowerCase().split("x");
+		return new Dimension(Integer.parseInt(size[0].trim()), Integer.parseInt(size[1].trim()));
+	}
+
+	/**
+	 * Adds timeouts and window size to the capabilities if bootstrap mode is enabled.
+	 */
+	static <T extends AbstractDriverOptions<?>> T apply(T options) {
+		if (!isEnabled()) {
+			return options;
+		}
+		if (!IMPLICIT_WAIT.isZero()) {
+			options.setImplicitWaitTimeout(IMPLICIT_WAIT);
+		}
+		options.setScriptTimeout(SCRIPT_TIMEOUT);
+		options.setPageLoadTimeout(PAGE_LOAD_TIMEOUT);
+		Dimension size = getWindowSize();
+		if (options instanceof ChromiumOptions<?> chromium) {
+			chromium.addArguments("--window-size=" + size.width + "," + size.height);
+		} else if (options instanceof FirefoxOptions firefox) {
+			firefox.addArguments("--width=" + size.width, "--height=" + size.height);
+		}
+		return options;
+	}
+
+	/**
+	 * Remembers the duration of the post-creation configuration of a classic session as baseline.
+	 */
+	static void recordClassic(String browser, boolean remote, long nanos) {
+		recorded.put(baselineKey(browser, remote), TimeUnit.NANOSECONDS.toMillis(nanos));
+		if (hookRegistered.compareAndSet(false, true)) {
+			Runtime.getRuntime().addShutdownHook(new Thread(SessionBootstrap::storeBaseline, "session-bootstrap-baseline"));
+		}
+	}
+
+	/**
+	 * Merges the recorded baselines into the file, under a file lock because forks share it.
+	 */
+	private static void storeBaseline() {
+		Path file = Path.of(BASELINE_FILE);
+		try {
+			Files.createDirectories(file.getParent());
+			try (FileChannel lock = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				 FileLock ignored = lock.lock()) {
+				Properties baseline = loadBaseline();
+				recorded.forEach((key, millis) -> baseline.setProperty(key, String.valueOf(millis)));
+				Path tmp = Files.createTempFile(file.getParent(), "baseline", ".tmp");
+				try (OutputStream out = Files.newOutputStream(tmp)) {
+					baseline.store(out, "post-creation configuration time of classic sessions in ms");
+				}
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		} catch (IOException e) {
+			logger.debug("Could not store session bootstrap baseline: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Logs the latency saved by a bootstrapped session compared to the last classic session.
+	 */
+	static void reportSaved(String browser, boolean remote) {
+		if (cachedBaseline == null) {
+			cachedBaseline = loadBaseline();
+		}
+		String key = baselineKey(browser, remote);
+		Long current = recorded.get(key);
+		String saved = current != null ? String.valueOf(current) : cachedBaseline.getProperty(key);
+		if (saved != null) {
+			logger.info("Session bootstrap saved {} round trips, ~{} ms", SAVED_ROUND_TRIPS, saved);
+		} else {
+			logger.info("Session bootstrap saved {} round trips (no classic baseline for {} yet)",
+					SAVED_ROUND_TRIPS, key);
+		}
+	}
+
+	private static String baselineKey(String browser, boolean remote) {
+		return browser + (remote ? ".remote" : ".local");
+	}
+
+	private static Properties loadBaseline() {
+		Properties baseline = new Properties();
+		Path file = Path.of(BASELINE_FILE);
+		if (Files.isRegularFile(file)) {
+			try (InputStream in = Files.newInputStream(file)) {
+				baseline.load(in);
+			} catch (IOException e) {
+				logger.debug("Could not read session bootstrap baseline: {}", e.getMessage());
+			}
+		}
+		return baseline;
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import jdk.jfr.*;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timing of the phases of {@link DriverFactoryExtended#initDriver()}: driver property, version probe,
+ * options, service start, session creation and configuration.
+ * <p>
+ * Every phase is committed as JFR event {@code com.example.DriverStartupPhase} (record with
+ * {@code -XX:StartFlightRecording}). At JVM shutdown a JSON summary with count, mean and percentiles per
+ * browser, local/remote and phase is written to {@code target/driver-startup/startup-<pid>.json}.
+ */
+public final class StartupMetrics {
+
+	private static final Logger logger = LoggerFactory.getLogger(StartupMetrics.class);
+
+	private static final Path SUMMARY_DIR = Path.of("target", "driver-startup");
+
+	private static final ConcurrentMap<String, Queue<Long>> durations = new ConcurrentHashMap<>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(StartupMetrics::writeSummary, "startup-metrics-summary"));
+	}
+
+	private StartupMetrics() {
+	}
+
+	/**
+	 * Starts timing a phase. The phase ends when the returned object is closed.
+	 *
+	 * @param browser the browser, e.g. "chrome"
+	 * @param remote  true for Selenium Grid sessions
+	 * @param phase   the phase name, e.g. "serviceStart"
+	 * @return the running phase
+	 */
+	public static Phase phase(String browser, boolean remote, String phase) {
+		return new Phase(browser, remote, phase);
+	}
+
+	/**
+	 * Runs the action as timed phase and returns its result.
+	 */
+	public static <T> T time(String browser, boolean remote, String phase, Supplier<T> action) {
+		try (Phase ignored = phase(browser, remote, phase)) {
+			return action.get();
+		}
+	}
+
+	/**
+	 * Runs the action as timed phase.
+	 */
+	public static void run(String browser, boolean remote, String phase, Runnable action) {
+		try (Phase ignored = phase(browser, remote, phase)) {
+			action.run();
+		}
+	}
+
+	private static void record(Phase phase, long nanos) {
+		String key = phase.browser + "|" + (phase.remote ? "remote" : "local") + "|" + phase.name;
+		durations.computeIfAbsent(key, k -> new ConcurrentLinkedQueue<>()).add(nanos);
+	}
+
+	/**
+	 * Writes the summary of all recorded phases as JSON.
+	 */
+	static void writeSummary() {
+		if (durations.isEmpty()) {
+			return;
+		}
+		List<Map<String, Object>> phases = new ArrayList<>();
+		new TreeMap<>(durations).forEach((key, values) -> {
+			String[] parts = key.split("\\|");
+			long[] sorted = values.stream().mapToLong(Long::longValue).sorted().toArray();
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("browser", parts[0]);
+			entry.put("mode", parts[1]);
+			entry.put("phase", parts[2]);
+			entry.put("count", sorted.length);
+			entry.put("meanMs", millis((long) Arrays.stream(sorted).average().orElse(0)));
+			entry.put("p50Ms", millis(percentile(sorted, 50)));
+			entry.put("p90Ms", millis(percentile(sorted, 90)));
+			entry.put("p99Ms", millis(percentile(sorted, 99)));
+			entry.put("maxMs", millis(sorted[sorted.length - 1]));
+			phases.add(entry);
+		});
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("pid", ProcessHandle.current().pid());
+		summary.put("phases", phases);
+		try {
+			Files.createDirectories(SUMMARY_DIR);
+			Path file = SUMMARY_DIR.resolve("startup-" + ProcessHandle.current().pid() + ".json");
+			Files.writeString(file, new Json().toJson(summary), StandardCharsets.UTF_8);
+			logger.info("Driver startup summary written to {}", file);
+		} catch (IOException e) {
+			logger.warn("Could not write driver startup summary: {}", e.getMessage());
+		}
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 10_000.0) / 100.0;
+	}
+
+	/**
+	 * A running phase, ended by {@link #close()}.
+	 */
+	public static final class Phase implements AutoCloseable {
+		private final String browser;
+		private final boolean remote;
+		private final String name;
+		private final long start = System.nanoTime();
+		private final DriverStartupPhaseEvent event = new DriverStartupPhaseEvent();
+
+		private Phase(String browser, boolean remote, String name) {
+			this.browser = browser;
+			this.remote = remote;
+			this.name = name;
+			event.begin();
+		}
+
+		@Override
+		public void close() {
+			long nanos = System.nanoTime() - start;
+			event.end();
+			if (event.shouldCommit()) {
+				event.browser = browser;
+				event.remote = remote;
+				event.phase = name;
+				event.commit();
+			}
+			record(this, nanos);
+			logger.debug("Startup phase {} of {} took {} ms", name, browser, millis(nanos));
+		}
+	}
+
+	@Name("com.example.DriverStartupPhase")
+	@Label("WebDriver Startup Phase")
+	@Category({"Selenium", "WebDriver"})
+	@StackTrace(false)
+	static class DriverStartupPhaseEvent extends Event {
+		@Label("Browser")
+		String browser;
+
+		@Label("Remote")
+		boolean remote;
+
+		@Label("Phase")
+		String phase;
+	}
+}
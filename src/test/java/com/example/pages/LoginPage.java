@@ -2,16 +2,15 @@ package com.example.pages;
 
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.*;
-import com.example.utils.TestBase;
+import com.example.utils.ElementProbe;
+import com.example.utils.FormFiller;
+import com.example.utils.SmartWait;
 
 public class LoginPage  {
-	private final WebDriver driver;
-
-	@FindBy(id = "username")
-	private WebElement usernameInput;
+	private static final By USERNAME = By.id("username");
+	private static final By PASSWORD = By.id("password");
 
-	@FindBy(id = "password")
-	private WebElement passwordInput;
+	private final WebDriver driver;
 
 	@FindBy(css = "button.radius")
 	private WebElement loginButton;
@@ -21,16 +20,18 @@ public class LoginPage  {
 
 	public LoginPage(WebDriver driver) {
 		this.driver = driver;
-		PageFactory.initElements(driver, this);
+		PageFactory.initElements(SmartWait.locatorFactory(driver), this);
 	}
 
 	public void login(String user, String pass) {
-		usernameInput.sendKeys(user);
-		TestBase.setValue(driver, passwordInput, pass);
+		new FormFiller(driver)
+				.set(USERNAME, user)
+				.set(PASSWORD, pass)
+				.fill();
 		loginButton.click();
 	}
 
 	public String getSuccessMessage() {
-		return successMessage.getText();
+		return ElementProbe.probe(driver, successMessage).text();
 	}
 }
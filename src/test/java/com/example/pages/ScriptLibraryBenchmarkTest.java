@@ -0,0 +1,90 @@
+package com.example.pages;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openqa.selenium.*;
+
+import com.example.utils.*;
+
+/**
+ * Compares the JS fallbacks sending their full source per call with calls into the {@link ScriptLibrary}.
+ * Run against a grid with {@code -Dbenchmark=true -DremoteUrl=...}; iterations with {@code -Dbenchmark.iterations}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ScriptLibraryBenchmarkTest extends TestBase implements HasLogger {
+
+	private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 50);
+
+	/** The scripts the fallbacks sent before the library. */
+	private static final Map<String, String> INLINE_SCRIPTS = new LinkedHashMap<>();
+
+	static {
+		INLINE_SCRIPTS.put("mouseover", "var e=document.createEvent('MouseEvents');"
+				+ "e.initMouseEvent('mouseover',true,true,window,0,0,0,0,0,false,false,false,false,0,null);"
+				+ "arguments[0].dispatchEvent(e);");
+		INLINE_SCRIPTS.put("dblclick", "var e=document.createEvent('MouseEvents');"
+				+ "e.initMouseEvent('dblclick',true,true,window,0,0,0,0,0,false,false,false,false,0,null);"
+				+ "arguments[0].dispatchEvent(e);");
+		INLINE_SCRIPTS.put("contextmenu", "var e=document.createEvent('MouseEvents');"
+				+ "e.initMouseEvent('contextmenu',true,true,window,0,0,0,0,0,false,false,false,false,2,null);"
+				+ "arguments[0].dispatchEvent(e);");
+		INLINE_SCRIPTS.put("dragDrop", """
+				function createEvent(type){var e=document.createEvent("CustomEvent");
+				  e.initCustomEvent(type,true,true,null);
+				  e.dataTransfer={data:{},setData:function(k,v){this.data[k]=v;},getData:function(k){return this.data[k];}};
+				  return e;}
+				function dispatch(el,ev,dt){if(dt)ev.dataTransfer=dt; if(el.dispatchEvent) el.dispatchEvent(ev); else el.fireEvent("on"+ev.type,ev);}
+				var dragStart=createEvent('dragstart'); dispatch(arguments[0],dragStart);
+				var drop=createEvent('drop'); dispatch(arguments[1],drop,dragStart.dataTransfer);
+				var dragEnd=createEvent('dragend'); dispatch(arguments[0],dragEnd,drop.dataTransfer);
+				""");
+		INLINE_SCRIPTS.put("setValue", "arguments[0].value = arguments[1];"
+				+ "arguments[0].dispatchEvent(new Event('input', { bubbles: true }));"
+				+ "arguments[0].dispatchEvent(new Event('change', { bubbles: true }));");
+	}
+
+	@BeforeEach
+	void setup() {
+		super.setup("https://the-internet.herokuapp.com/login");
+	}
+
+	@Test
+	void inlineScriptsVersusLibrary() {
+		WebElement username = driver.findElement(By.id("username"));
+		WebElement password = driver.findElement(By.id("password"));
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+
+		getLogger().info("Script library benchmark, {} iterations per action", ITERATIONS);
+		getLogger().info(String.format("%-12s %14s %14s %12s %12s", "action", "inline bytes", "library bytes", "inline ms", "library ms"));
+		for (Map.Entry<String, String> entry : INLINE_SCRIPTS.entrySet()) {
+			String action = entry.getKey();
+			Object[] args = action.equals("dragDrop") ? new Object[]{username, password}
+					: action.equals("setValue") ? new Object[]{username, "benchmark"} : new Object[]{username};
+
+			ScriptLibrary.call(driver, action, args); // installs the library if it was not preloaded
+			long start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				executor.executeScript(entry.getValue(), args);
+			}
+			long inline = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (int i = 0; i < ITERATIONS; i++) {
+				ScriptLibrary.call(driver, action, args);
+			}
+			long library = System.nanoTime() - start;
+
+			int inlineBytes = entry.getValue().getBytes(StandardCharsets.UTF_8).length;
+			int libraryBytes = ScriptLibrary.callScript(action).getBytes(StandardCharsets.UTF_8).length;
+			getLogger().info(String.format("%-12s %14d %14d %12.2f %12.2f", action, inlineBytes, libraryBytes,
+					inline / 1e6 / ITERATIONS, library / 1e6 / ITERATIONS));
+			assertTrue(libraryBytes <= inlineBytes, action + " call sends more than its inline script");
+		}
+		getLogger().info("Library calls/installs: {}", ScriptLibrary.getStats());
+	}
+}
@@ -0,0 +1,119 @@
+package com.example.utils;
+
+import java.time.Duration;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time budget of an action or a test step, shared by everything that runs on the thread until it is
+ * closed. Budgets nest: an inner budget never ends after the enclosing one, so a test step opened with
+ * {@code try (ActionBudget step = ActionBudget.open("checkout", Duration.ofSeconds(30)))} bounds all
+ * SafeActions fallback chains inside it.
+ * <p>
+ * Budgets which are used up are counted per name, the counts are logged at JVM shutdown.
+ */
+public final class ActionBudget implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ActionBudget.class);
+
+	private static final ThreadLocal<ActionBudget> current = new ThreadLocal<>();
+	private static final ConcurrentMap<String, Stat> stats = new ConcurrentHashMap<>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(ActionBudget::logStats, "action-budget-stats"));
+	}
+
+	private final String name;
+	private final long deadline;
+	private final ActionBudget parent;
+	private final boolean shortened;
+
+	private ActionBudget(String name, long deadline, ActionBudget parent, boolean shortened) {
+		this.name = name;
+		this.deadline = deadline;
+		this.parent = parent;
+		this.shortened = shortened;
+	}
+
+	/**
+	 * Opens a budget on the current thread, ending at the earlier of now + budget and the enclosing deadline.
+	 */
+	public static ActionBudget open(String name, Duration budget) {
+		ActionBudget parent = current.get();
+		long deadline = System.nanoTime() + budget.toNanos();
+		boolean shortened = parent != null && parent.deadline - deadline < 0;
+		if (shortened) {
+			deadline = parent.deadline;
+		}
+		ActionBudget opened = new ActionBudget(name, deadline, parent, shortened);
+		current.set(opened);
+		return opened;
+	}
+
+	/**
+	 * @return the timeout, shortened to the remaining time of the current budget if there is one
+	 */
+	public static Duration clamp(Duration timeout) {
+		ActionBudget budget = current.get();
+		if (budget == null) {
+			return timeout;
+		}
+		Duration remaining = budget.remaining();
+		return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+	}
+
+	public Duration remaining() {
+		return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+	}
+
+	/**
+	 * Time for the next of the remaining steps, e.g. strategies of a fallback chain: an even share of the
+	 * remaining time, so a slow first strategy cannot starve the later ones.
+	 */
+	public Duration share(int stepsLeft) {
+		return remaining().dividedBy(Math.max(1, stepsLeft));
+	}
+
+	/**
+	 * @return true if the enclosing budget ends before this one would have
+	 */
+	public boolean isShortened() {
+		return shortened;
+	}
+
+	public boolean isExhausted() {
+		return deadline - System.nanoTime() <= 0;
+	}
+
+	@Override
+	public void close() {
+		if (current.get() == this) {
+			if (parent != null) current.set(parent); else current.remove();
+		}
+		long over = System.nanoTime() - deadline;
+		Stat stat = stats.computeIfAbsent(name, n -> new Stat());
+		stat.count.incrementAndGet();
+		if (over >= 0) {
+			stat.exhausted.incrementAndGet();
+			stat.overNanos.addAndGet(over);
+			logger.debug("Budget of {} used up, {} ms over", name, TimeUnit.NANOSECONDS.toMillis(over));
+		}
+	}
+
+	private static void logStats() {
+		new TreeMap<>(stats).forEach((name, stat) -> logger.info("Budget {}: {} runs, {} used up, {} ms over budget",
+				name, stat.count.get(), stat.exhausted.get(), TimeUnit.NANOSECONDS.toMillis(stat.overNanos.get())));
+	}
+
+	private static final class Stat {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong exhausted = new AtomicLong();
+		private final AtomicLong overNanos = new AtomicLong();
+	}
+}
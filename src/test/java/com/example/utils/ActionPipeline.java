@@ -0,0 +1,194 @@
+package com.example.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of interactions performed as W3C Actions sequences or, as fallback, one {@link ScriptLibrary}
+ * call, followed by a single post-condition check for the whole flow:
+ * <pre>
+ * safeActions.pipeline()
+ *         .hover(menu)
+ *         .click(menuItem)
+ *         .type(search, "selenium")
+ *         .perform(() -&gt; results.isDisplayed(), Duration.ofSeconds(5));
+ * </pre>
+ * Like the single SafeActions, the fallback chain is learned by the {@link StrategyCache} and bounded
+ * by an {@link ActionBudget}. In the JS fallback, {@code type} replaces the value of the field and
+ * dispatches input and change events; natively it clicks the field and types. Natively each target is
+ * scrolled into view with a wheel action before it is used.
+ * <p>
+ * The post-condition is only checked at the end, so the fallback must not repeat steps which the first
+ * strategy already applied: a click could submit a form twice or flip a toggle back. The native strategy
+ * therefore sends one Actions sequence per click, type or drag together with the steps before it, and
+ * counts the sequences which completed. The fallback repeats hover and scroll steps, but skips clicks,
+ * drags and native typing which were already applied; the script's {@code type} sets the value and is
+ * repeated.
+ */
+public class ActionPipeline {
+
+	private static final Logger logger = LoggerFactory.getLogger(ActionPipeline.class);
+
+	private final SafeActions safeActions;
+	private final WebDriver driver;
+	private final List<Step> steps = new ArrayList<>();
+	/** number of leading steps of the current flow which were applied by a strategy */
+	private int applied;
+
+	ActionPipeline(SafeActions safeActions, WebDriver driver) {
+		this.safeActions = safeActions;
+		this.driver = driver;
+	}
+
+	/**
+	 * @param op       name of the ScriptLibrary function of the JS fallback
+	 * @param elements target elements
+	 * @param text     text to type or null
+	 */
+	private record Step(String op, List<WebElement> elements, String text) {
+	}
+
+	public ActionPipeline scroll(WebElement element) {
+		steps.add(new Step("scroll", List.of(element), null));
+		return this;
+	}
+
+	public ActionPipeline hover(WebElement element) {
+		steps.add(new Step("mouseover", List.of(element), null));
+		return this;
+	}
+
+	public ActionPipeline click(WebElement element) {
+		steps.add(new Step("click", List.of(element), null));
+		return this;
+	}
+
+	/** Types into an empty field, see the class comment for the JS fallback. */
+	public ActionPipeline type(WebElement element, String text) {
+		steps.add(new Step("setValue", List.of(element), text));
+		return this;
+	}
+
+	public ActionPipeline drag(WebElement source, WebElement target) {
+		steps.add(new Step("dragDrop", List.of(source, target), null));
+		return this;
+	}
+
+	/**
+	 * Performs the queued steps; the post-condition is checked once after all of them.
+	 */
+	public SafeActions perform(Supplier<Boolean> postOk, Duration timeout) {
+		return perform(t -> safeActions.waitTrue(postOk, t), timeout);
+	}
+
+	/**
+	 * Performs the queued steps, expecting an element inside root to become visible at the end.
+	 */
+	public SafeActions perform(WebElement root, By becomesVisible, Duration timeout) {
+		return perform(t -> safeActions.waitVisible(root, becomesVisible, t), timeout);
+	}
+
+	private SafeActions perform(Predicate<Duration> postCondition, Duration timeout) {
+		if (steps.isEmpty()) {
+			return safeActions;
+		}
+		List<Step> queued = List.copyOf(steps);
+		steps.clear();
+		String action = queued.stream().map(Step::op).collect(Collectors.joining("+", "pipeline:", ""));
+		WebElement[] targets = queued.stream().flatMap(step -> step.elements().stream()).toArray(WebElement[]::new);
+		applied = 0;
+		if (!safeActions.withFallback(action, () -> performNative(queued), () -> performScript(queued),
+				postCondition, timeout, targets)) {
+			logger.warn("{} fallback did not satisfy post-condition.", action);
+		}
+		return safeActions;
+	}
+
+	/**
+	 * Whether the step can be performed again after it was applied: moving the pointer or scrolling, and
+	 * setting the value by script. Typing natively appends to the value.
+	 */
+	private static boolean isRepeatable(Step step, boolean script) {
+		return switch (step.op()) {
+			case "scroll", "mouseover" -> true;
+			case "setValue" -> script;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Performs the steps not applied yet, one sequence up to and including each step which cannot be
+	 * repeated, so {@link #applied} covers every completed sequence if a later one fails.
+	 */
+	private void performNative(List<Step> queued) {
+		Actions actions = new Actions(driver);
+		boolean pending = false;
+		for (int i = 0; i < queued.size(); i++) {
+			Step step = queued.get(i);
+			if (i < applied && !isRepeatable(step, false)) {
+				logger.debug("Skipping {}, already applied", step.op());
+				continue;
+			}
+			WebElement element = step.elements().get(0);
+			switch (step.op()) {
+				case "scroll" -> actions.scrollToElement(element);
+				case "mouseover" -> actions.scrollToElement(element).moveToElement(element);
+				case "click" -> actions.scrollToElement(element).moveToElement(element).click();
+				case "setValue" -> actions.scrollToElement(element).moveToElement(element).click().sendKeys(step.text());
+				case "dragDrop" -> actions.scrollToElement(element)
+						.moveToElement(element)
+						.clickAndHold()
+						.scrollToElement(step.elements().get(1))
+						.moveToElement(step.elements().get(1))
+						.pause(Duration.ofMillis(150))
+						.release();
+				default -> throw new IllegalStateException("Unknown step " + step.op());
+			}
+			pending = true;
+			if (!isRepeatable(step, false)) {
+				actions.perform();
+				applied = Math.max(applied, i + 1);
+				actions = new Actions(driver);
+				pending = false;
+			}
+		}
+		if (pending) {
+			actions.perform();
+		}
+		applied = queued.size();
+	}
+
+	private void performScript(List<Step> queued) {
+		List<Map<String, Object>> batch = new ArrayList<>();
+		for (int i = 0; i < queued.size(); i++) {
+			Step step = queued.get(i);
+			if (i < applied && !isRepeatable(step, true)) {
+				logger.debug("Skipping {}, already applied", step.op());
+				continue;
+			}
+			List<Object> args = new ArrayList<>(step.elements());
+			if (step.text() != null) args.add(step.text());
+			Map<String, Object> call = new LinkedHashMap<>();
+			call.put("op", step.op());
+			call.put("args", args);
+			batch.add(call);
+		}
+		if (!batch.isEmpty()) {
+			ScriptLibrary.call(driver, "batch", batch);
+		}
+		applied = queued.size();
+	}
+}
@@ -0,0 +1,157 @@
+package com.example.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.qameta.allure.Allure;
+import io.qameta.allure.AllureLifecycle;
+import io.qameta.allure.model.Attachment;
+import io.qameta.allure.util.PropertiesUtils;
+
+/**
+ * Content-addressed Allure attachments. The file of an attachment is named after the SHA-256 of its
+ * content, so identical payloads (the same error page, the same empty log) are written once to the
+ * results directory and every later attachment points to the existing file.
+ */
+public final class AllureAttachmentStore {
+
+	private static final Logger logger = LoggerFactory.getLogger(AllureAttachmentStore.class);
+
+	private static final Path RESULTS_DIR = Path.of(PropertiesUtils.loadAllureProperties()
+			.getProperty("allure.results.directory", "allure-results"));
+
+	/** Sources known to exist, saves the file system check. */
+	private static final Set<String> written = ConcurrentHashMap.newKeySet();
+
+	private AllureAttachmentStore() {
+	}
+
+	@FunctionalInterface
+	public interface ContentWriter {
+		void writeTo(OutputStream out) throws IOException;
+	}
+
+	public static Path getResultsDir() {
+		return RESULTS_DIR;
+	}
+
+	/**
+	 * Stores the content if it is new and attaches it to the current test or step.
+	 */
+	public static void attach(String name, String type, String extension, byte[] content) {
+		String source = sourceFor(content, extension);
+		if (!exists(source)) {
+			try {
+				write(source, content);
+			} catch (IOException e) {
+				logger.warn("Could not write attachment {}: {}", name, e.getMessage());
+				return;
+			}
+		}
+		attachSource(name, type, source);
+	}
+
+	/**
+	 * Streams the content into a temporary file while hashing it, keeps it if it is new and attaches it
+	 * to the current test or step.
+	 */
+	public static void attach(String name, String type, String extension, ContentWriter content) {
+		Path tmp = null;
+		try {
+			Files.createDirectories(RESULTS_DIR);
+			tmp = Files.createTempFile(RESULTS_DIR, "attachment", ".tmp");
+			MessageDigest digest = sha256();
+			try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp), digest)) {
+				content.writeTo(out);
+			}
+			String source = HexFormat.of().formatHex(digest.digest()) + "-attachment" + extension;
+			if (exists(source)) {
+				Files.delete(tmp);
+			} else {
+				Files.move(tmp, RESULTS_DIR.resolve(source), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				written.add(source);
+			}
+			attachSource(name, type, source);
+		} catch (IOException e) {
+			logger.warn("Could not write attachment {}: {}", name, e.getMessage());
+			if (tmp != null) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Name of the attachment file for the content.
+	 */
+	public static String sourceFor(byte[] content, String extension) {
+		return HexFormat.of().formatHex(sha256().digest(content)) + "-attachment" + extension;
+	}
+
+	public static boolean exists(String source) {
+		if (written.contains(source)) {
+			return true;
+		}
+		if (Files.exists(RESULTS_DIR.resolve(source))) {
+			written.add(source);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the attachment file atomically; another fork writing the same source writes the same bytes.
+	 */
+	public static void write(String source, byte[] content) throws IOException {
+		Files.createDirectories(RESULTS_DIR);
+		Path tmp = Files.createTempFile(RESULTS_DIR, "attachment", ".tmp");
+		try {
+			Files.write(tmp, content);
+			Files.move(tmp, RESULTS_DIR.resolve(source), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			written.add(source);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Adds an attachment pointing to an existing or pending file to the current step or test. Must be
+	 * called on the test thread.
+	 */
+	public static void attachSource(String name, String type, String source) {
+		AllureLifecycle lifecycle = Allure.getLifecycle();
+		Optional<String> current = lifecycle.getCurrentTestCaseOrStep();
+		if (current.isEmpty()) {
+			logger.warn("Could not add attachment {}: no test is running", name);
+			return;
+		}
+		Attachment attachment = new Attachment().setName(name).setType(type).setSource(source);
+		String uuid = current.get();
+		if (current.equals(lifecycle.getCurrentTestCase())) {
+			lifecycle.updateTestCase(uuid, result -> result.getAttachments().add(attachment));
+		} else {
+			lifecycle.updateStep(uuid, step -> step.getAttachments().add(attachment));
+		}
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.example.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.pattern.ThrowableProxyConverter;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.CoreConstants;
+
+/**
+ * Writes the log of a test as Allure attachment. The events are formatted one by one straight into a
+ * buffered writer on the attachment file, so the log is never held as one string. Identical logs share
+ * one file, see {@link AllureAttachmentStore}.
+ */
+public final class AllureLogWriter {
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+			.withZone(ZoneId.systemDefault());
+	private static final ThrowableProxyConverter THROWABLE_CONVERTER = new ThrowableProxyConverter();
+
+	static {
+		THROWABLE_CONVERTER.start();
+	}
+
+	private AllureLogWriter() {
+	}
+
+	/**
+	 * Attaches the events to the current test or step.
+	 *
+	 * @param name    attachment name
+	 * @param drained the events of the test
+	 * @param debug   false to skip DEBUG and TRACE events
+	 */
+	public static void attach(String name, TestLogAppender.Drained drained, boolean debug) {
+		AllureAttachmentStore.attach(name, "text/plain", ".txt", stream -> {
+			Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+			boolean first = true;
+			if (drained.dropped() > 0) {
+				out.write("[" + drained.dropped() + " earlier log events dropped, buffer full]");
+				first = false;
+			}
+			for (ILoggingEvent event : drained.events()) {
+				if (!debug && !event.getLevel().isGreaterOrEqual(Level.INFO)) {
+					continue;
+				}
+				if (!first) out.write('\n');
+				writeEvent(out, event);
+				first = false;
+			}
+			out.flush();
+		});
+	}
+
+	private static void writeEvent(Writer out, ILoggingEvent event) throws IOException {
+		DATE_FORMAT.formatTo(Instant.ofEpochMilli(event.getTimeStamp()), out);
+		out.write(" [");
+		out.write(event.getThreadName());
+		out.write("] ");
+		out.write(event.getLevel().toString());
+		out.write("  ");
+		out.write(event.getLoggerName());
+		out.write(' ');
+		writeWithoutCarriageReturns(out, String.valueOf(event.getFormattedMessage()));
+		if (event.getThrowableProxy() != null) {
+			// the converter ends every line with the platform separator, events are separated by '\n' only
+			String stackTrace = THROWABLE_CONVERTER.convert(event);
+			if (stackTrace.endsWith(CoreConstants.LINE_SEPARATOR)) {
+				stackTrace = stackTrace.substring(0, stackTrace.length() - CoreConstants.LINE_SEPARATOR.length());
+			}
+			out.write('\n');
+			writeWithoutCarriageReturns(out, stackTrace);
+		}
+	}
+
+	private static void writeWithoutCarriageReturns(Writer out, String text) throws IOException {
+		int start = 0;
+		for (int cr = text.indexOf('\r'); cr >= 0; cr = text.indexOf('\r', start)) {
+			out.write(text, start, cr - start);
+			start = cr + 1;
+		}
+		out.write(text, start, text.length() - start);
+	}
+}
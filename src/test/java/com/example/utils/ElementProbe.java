@@ -0,0 +1,118 @@
+package com.example.utils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+import org.openqa.selenium.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Snapshot of the state of an element, and optionally of a child found by locator, read with one script
+ * call instead of separate calls for isDisplayed, getCssValue, getText, getRect and getAttribute. The
+ * script is pinned once per driver.
+ */
+public final class ElementProbe {
+
+	private static final Logger logger = LoggerFactory.getLogger(ElementProbe.class);
+
+	/** args: element, using, value (using and value null without child) */
+	private static final String PROBE_SCRIPT = Locators.FIND_FUNCTION + """
+			function snap(el) {
+			  if (!el) return null;
+			  var style = window.getComputedStyle(el), box = el.getBoundingClientRect(), rects = el.getClientRects();
+			  var displayed = style.display !== 'none' && style.visibility !== 'hidden'
+			      && Array.prototype.some.call(rects, function (r) { return r.width > 0 || r.height > 0; });
+			  return {displayed: displayed, opacity: style.opacity, display: style.display, visibility: style.visibility,
+			      text: displayed ? (el.innerText || '').trim() : '',
+			      x: box.left, y: box.top, width: box.width, height: box.height,
+			      value: 'value' in el ? String(el.value) : null};
+			}
+			var child = arguments[1] ? __find(arguments[0], arguments[1], arguments[2]) : null;
+			return {element: snap(arguments[0]), child: arguments[1] ? snap(child) : null};
+			""";
+
+	private static final Map<WebDriver, ScriptKey> pinned = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private ElementProbe() {
+	}
+
+	/**
+	 * State of an element; {@link #present()} is false for a missing child.
+	 */
+	public record Snapshot(boolean present, boolean displayed, double opacity, String display, String visibility,
+						   String text, Rectangle rect, String value) {
+
+		static final Snapshot ABSENT = new Snapshot(false, false, 0, "none", "hidden", "", new Rectangle(0, 0, 0, 0), null);
+
+		/**
+		 * Same criteria as SafeActions: displayed, opacity not 0, display not none.
+		 */
+		public boolean isVisible() {
+			return present && displayed && opacity != 0 && !"none".equals(display);
+		}
+	}
+
+	public record Result(Snapshot element, Snapshot child) {
+	}
+
+	public static Snapshot probe(WebDriver driver, WebElement element) {
+		return execute(driver, element, null, null).element();
+	}
+
+	/**
+	 * Probes the element and its first child matching the locator in one call.
+	 *
+	 * @return the snapshots, or empty if the locator cannot be resolved in the browser (e.g. ByChained)
+	 */
+	public static Optional<Result> probe(WebDriver driver, WebElement element, By child) {
+		return Locators.of(child).map(locator -> execute(driver, element, locator.using(), locator.value()));
+	}
+
+	private static Result execute(WebDriver driver, WebElement element, String using, String value) {
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		ScriptKey key = pinned.computeIfAbsent(driver, d -> pin(executor));
+		Object result = key != null
+				? executor.executeScript(key, element, using, value)
+				: executor.executeScript(PROBE_SCRIPT, element, using, value);
+		Map<?, ?> map = (Map<?, ?>) result;
+		return new Result(toSnapshot(map.get("element")), toSnapshot(map.get("child")));
+	}
+
+	private static ScriptKey pin(JavascriptExecutor executor) {
+		try {
+			return executor.pin(PROBE_SCRIPT);
+		} catch (RuntimeException e) {
+			logger.debug("Could not pin probe script, sending it with each call: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	private static Snapshot toSnapshot(Object value) {
+		if (!(value instanceof Map<?, ?> map)) {
+			return Snapshot.ABSENT;
+		}
+		return new Snapshot(true,
+				Boolean.TRUE.equals(map.get("displayed")),
+				parseDouble(map.get("opacity")),
+				String.valueOf(map.get("display")),
+				String.valueOf(map.get("visibility")),
+				String.valueOf(map.get("text")),
+				new Rectangle(toInt(map.get("x")), toInt(map.get("y")), toInt(map.get("height")), toInt(map.get("width"))),
+				map.get("value") == null ? null : String.valueOf(map.get("value")));
+	}
+
+	private static double parseDouble(Object value) {
+		try {
+			return Double.parseDouble(String.valueOf(value));
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
+	private static int toInt(Object value) {
+		return value instanceof Number number ? (int) Math.round(number.doubleValue()) : 0;
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.utils;
+
+import java.util.Iterator;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Console filter of the flush-on-failure mode, enabled with {@code -Dlog.flushOnFailure=true}. DEBUG and
+ * TRACE events are kept unformatted in the test's {@link TestLogAppender} buffer only; if the test fails
+ * they are written to the console by {@link #flush(String)} and added to the Allure log, otherwise they
+ * are discarded. Green tests therefore produce INFO output only. Events outside of a test are not buffered
+ * and pass the filter.
+ */
+public class FlushOnFailureFilter extends Filter<ILoggingEvent> {
+
+	private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("log.flushOnFailure", "false"));
+	private static final ThreadLocal<Boolean> flushing = ThreadLocal.withInitial(() -> false);
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	@Override
+	public FilterReply decide(ILoggingEvent event) {
+		if (!ENABLED || flushing.get() || event.getLevel().isGreaterOrEqual(Level.INFO)
+				|| event.getMDCPropertyMap().get(TestLogAppender.TEST_ID) == null) {
+			return FilterReply.NEUTRAL;
+		}
+		return FilterReply.DENY;
+	}
+
+	/**
+	 * Marks the test as failed and writes its buffered DEBUG and TRACE events to the other appenders of
+	 * the root logger.
+	 *
+	 * @param key the routing key of the test, see {@link TestLogAppender#currentKey()}
+	 */
+	public static void flush(String key) {
+		if (!ENABLED) {
+			return;
+		}
+		TestLogAppender.get().ifPresent(testLog -> {
+			ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+			flushing.set(true);
+			try {
+				for (ILoggingEvent event : testLog.markFailed(key).events()) {
+					if (event.getLevel().isGreaterOrEqual(Level.INFO)) {
+						continue; // already written
+					}
+					for (Iterator<Appender<ILoggingEvent>> it = root.iteratorForAppenders(); it.hasNext(); ) {
+						Appender<ILoggingEvent> appender = it.next();
+						if (appender != testLog) {
+							appender.doAppend(event);
+						}
+					}
+				}
+			} finally {
+				flushing.remove();
+			}
+		});
+	}
+}
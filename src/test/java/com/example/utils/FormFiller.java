@@ -0,0 +1,97 @@
+package com.example.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fills a form with one script call: the fields are looked up, set, get input and change events and are
+ * read back for verification in the same call. Fields which need real keystrokes (key handlers, input
+ * masks) are typed natively first and only verified by the script:
+ * <pre>
+ * new FormFiller(driver)
+ *         .set(By.id("username"), user)
+ *         .type(By.id("password"), pass)
+ *         .fill();
+ * </pre>
+ * Fields which are missing or do not hold their value afterwards are set again one by one with
+ * {@link TestBase#setValue(WebDriver, WebElement, String)}.
+ */
+public class FormFiller {
+
+	private static final Logger logger = LoggerFactory.getLogger(FormFiller.class);
+
+	private final WebDriver driver;
+	private final SmartWait smartWait;
+	private final List<Field> fields = new ArrayList<>();
+
+	private record Field(By locator, String value, boolean keystrokes) {
+	}
+
+	public FormFiller(WebDriver driver) {
+		this.driver = driver;
+		this.smartWait = new SmartWait(driver);
+	}
+
+	/** Sets the value with the script. */
+	public FormFiller set(By field, String value) {
+		fields.add(new Field(field, value, false));
+		return this;
+	}
+
+	/** Types the value with real keystrokes. */
+	public FormFiller type(By field, String value) {
+		fields.add(new Field(field, value, true));
+		return this;
+	}
+
+	public FormFiller setAll(Map<By, String> values) {
+		values.forEach(this::set);
+		return this;
+	}
+
+	/**
+	 * Sets all fields and verifies their values.
+	 */
+	public void fill() {
+		for (Field field : fields) {
+			if (field.keystrokes()) {
+				WebElement element = smartWait.present(field.locator());
+				element.clear();
+				element.sendKeys(field.value());
+			}
+		}
+
+		List<Map<String, Object>> script = new ArrayList<>();
+		for (Field field : fields) {
+			Map<String, Object> entry = new HashMap<>();
+			Optional<Locators.Locator> locator = Locators.of(field.locator());
+			// locators the browser cannot resolve (e.g. ByChained) are waited for like all other lookups
+			entry.put("element", locator.isPresent() ? null : smartWait.present(field.locator()));
+			entry.put("using", locator.map(Locators.Locator::using).orElse(null));
+			entry.put("locatorValue", locator.map(Locators.Locator::value).orElse(null));
+			entry.put("text", field.keystrokes() ? null : field.value());
+			script.add(entry);
+		}
+		List<?> actual = (List<?>) ScriptLibrary.call(driver, "fill", script);
+
+		for (int i = 0; i < fields.size(); i++) {
+			Field field = fields.get(i);
+			Object value = actual.get(i);
+			if (!Objects.equals(field.value(), value)) {
+				logger.debug("Field {} {} after filling → setting it again", field.locator(),
+						value == null ? "is missing" : "does not hold its value");
+				TestBase.setValue(driver, smartWait.present(field.locator()), field.value());
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.utils;
+
+import java.util.Optional;
+
+import org.openqa.selenium.By;
+
+/**
+ * Translation of Selenium locators for lookups inside the browser. The strategy and value are passed as
+ * script arguments and resolved by the JavaScript function {@link #FIND_FUNCTION}, so scripts can look
+ * up elements without a round trip per lookup.
+ */
+public final class Locators {
+
+	/**
+	 * JavaScript function {@code __find(root, using, value)} returning the first match under root (an
+	 * element or the document) or null.
+	 */
+	public static final String FIND_FUNCTION = """
+			function __find(root, using, value) {
+			  root = root || document;
+			  switch (using) {
+			    case 'css selector': return root.querySelector(value);
+			    case 'id': return root.querySelector('#' + CSS.escape(value));
+			    case 'name': return root.querySelector('[name="' + CSS.escape(value) + '"]');
+			    case 'class name': return root.querySelector('.' + CSS.escape(value));
+			    case 'tag name': return root.querySelector(value);
+			    case 'xpath':
+			      return document.evaluate(value, root, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+			    case 'link text':
+			    case 'partial link text':
+			      var links = root.querySelectorAll('a');
+			      for (var i = 0; i < links.length; i++) {
+			        var text = (links[i].innerText || links[i].textContent || '').trim();
+			        if (using === 'link text' ? text === value : text.indexOf(value) >= 0) return links[i];
+			      }
+			      return null;
+			  }
+			  return null;
+			}
+			""";
+
+	private Locators() {
+	}
+
+	/**
+	 * Strategy and value of a locator, as used by {@link #FIND_FUNCTION}.
+	 */
+	public record Locator(String using, String value) {
+	}
+
+	/**
+	 * @return the locator or empty for locators which cannot be resolved in the browser (e.g. ByChained)
+	 */
+	public static Optional<Locator> of(By by) {
+		if (by instanceof By.Remotable remotable) {
+			By.Remotable.Parameters parameters = remotable.getRemoteParameters();
+			return Optional.of(new Locator(parameters.using(), String.valueOf(parameters.value())));
+		}
+		return Optional.empty();
+	}
+}
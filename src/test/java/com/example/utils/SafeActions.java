@@ -4,15 +4,58 @@ import org.openqa.selenium.*;
 import org.openqa.selenium.interactions.Actions;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import org.slf4j.*;
 
 import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 public class SafeActions {
     private static final Logger log = LoggerFactory.getLogger(SafeActions.class);
 
+    /**
+     * Async wait harness: checks the condition (second placeholder) immediately, on every DOM mutation and
+     * every 50 ms (CSS-only changes like :hover do not mutate the DOM), and calls back at the first match or
+     * after arguments[0] ms. The first placeholder holds helper functions.
+     */
+    private static final String WAIT_HARNESS = """
+            var done = arguments[arguments.length - 1];
+            var args = arguments;
+            %s
+            function check() { try { return !!(%s); } catch (e) { return false; } }
+            if (check()) { done(true); return; }
+            var finished = false, interval, timer;
+            var observer = new MutationObserver(function () { if (!finished && check()) finish(true); });
+            function finish(result) {
+              finished = true; observer.disconnect(); clearInterval(interval); clearTimeout(timer); done(result);
+            }
+            observer.observe(document, {subtree: true, childList: true, attributes: true, characterData: true});
+            interval = setInterval(function () { if (!finished && check()) finish(true); }, 50);
+            timer = setTimeout(function () { if (!finished) finish(check()); }, args[0]);
+            """;
+
+    /** Same criteria as ElementProbe.Snapshot.isVisible(): displayed, opacity not 0, display not none. */
+    private static final String VISIBLE_FUNCTION = """
+            function __visible(el) {
+              if (!el) return false;
+              var style = window.getComputedStyle(el);
+              if (style.display === 'none' || style.visibility === 'hidden' || style.opacity === '0') return false;
+              var rects = el.getClientRects();
+              for (var i = 0; i < rects.length; i++) if (rects[i].width > 0 || rects[i].height > 0) return true;
+              return false;
+            }
+            """;
+
+    /** args: timeout, root, using, value */
+    private static final String WAIT_VISIBLE_SCRIPT =
+            WAIT_HARNESS.formatted(Locators.FIND_FUNCTION + VISIBLE_FUNCTION, "__visible(__find(args[1], args[2], args[3]))");
+
+    /** args: timeout, element, expected text */
+    private static final String WAIT_TEXT_SCRIPT =
+            WAIT_HARNESS.formatted("", "(args[1].innerText || args[1].textContent || '').trim() === args[2]");
+
     private final WebDriver driver;
     private final Actions actions;
 
@@ -21,6 +64,12 @@ public class SafeActions {
         this.actions = new Actions(driver);
     }
 
+    /* ===================== PIPELINE ===================== */
+    /** Queues several interactions to run as one Actions sequence or script, see ActionPipeline. */
+    public ActionPipeline pipeline() {
+        return new ActionPipeline(this, driver);
+    }
+
     /* ===================== HOVER ===================== */
     /** Legacy hover (no post-condition). */
     public SafeActions hover(WebElement el) {
@@ -33,11 +82,10 @@ public class SafeActions {
     /** Verified hover: element inside root must become visible. */
     public SafeActions hover(WebElement root, By becomesVisible, Duration timeout) {
         scroll(root);
-        try { actions.moveToElement(root).perform(); } catch (Exception ignore) {}
-        if (!waitVisible(root, becomesVisible, timeout)) {
-            log.debug("Hover post-condition not met → JS mouseover + force visible");
-            jsMouseOver(root);
-            if (!waitVisible(root, becomesVisible, timeout)) forceVisible(root, becomesVisible);
+        if (!withFallback("hover", () -> actions.moveToElement(root).perform(), () -> jsMouseOver(root),
+                t -> waitVisible(root, becomesVisible, t), timeout, root)) {
+            log.debug("Hover post-condition not met → force visible");
+            forceVisible(root, becomesVisible);
         }
         return this;
     }
@@ -46,29 +94,27 @@ public class SafeActions {
     /** Verified click: post predicate must become true. */
     public SafeActions click(WebElement el, Supplier<Boolean> postOk, Duration timeout) {
         scroll(el);
-        try { actions.moveToElement(el).click().perform(); } catch (Exception ignore) {}
-        if (!waitTrue(postOk, timeout)) {
-            log.debug("Click post-condition not met → JS click");
-            jsClick(el);
-            if (!waitTrue(postOk, timeout)) log.warn("Click fallback did not satisfy post-condition.");
-        }
+        if (!withFallback("click", () -> actions.moveToElement(el).click().perform(), () -> jsClick(el),
+                t -> waitTrue(postOk, t), timeout, el))
+            log.warn("Click fallback did not satisfy post-condition.");
         return this;
     }
 
     /** Convenience: click expecting a child to become visible. */
     public SafeActions click(WebElement root, By becomesVisible, Duration timeout) {
-        return click(root, () -> isVisibleUnder(root, becomesVisible), timeout);
+        scroll(root);
+        if (!withFallback("click", () -> actions.moveToElement(root).click().perform(), () -> jsClick(root),
+                t -> waitVisible(root, becomesVisible, t), timeout, root))
+            log.warn("Click fallback did not satisfy post-condition.");
+        return this;
     }
 
     /* ===================== DOUBLE CLICK ===================== */
     public SafeActions doubleClick(WebElement el, Supplier<Boolean> postOk, Duration timeout) {
         scroll(el);
-        try { actions.moveToElement(el).doubleClick().perform(); } catch (Exception ignore) {}
-        if (!waitTrue(postOk, timeout)) {
-            log.debug("Double-click post-condition not met → JS dblclick");
-            jsDblClick(el);
-            if (!waitTrue(postOk, timeout)) log.warn("Double-click fallback did not satisfy post-condition.");
-        }
+        if (!withFallback("doubleClick", () -> actions.moveToElement(el).doubleClick().perform(), () -> jsDblClick(el),
+                t -> waitTrue(postOk, t), timeout, el))
+            log.warn("Double-click fallback did not satisfy post-condition.");
         return this;
     }
 
@@ -76,14 +122,16 @@ public class SafeActions {
     /** Context click expecting a JS alert to appear (common demo case). */
     public SafeActions contextClickExpectAlert(WebElement el, Duration timeout, String hardFallbackAlertText) {
         scroll(el);
-        try { actions.contextClick(el).perform(); } catch (Exception ignore) {}
-        if (!waitAlert(timeout)) {
-            log.debug("No alert after context click → JS contextmenu + hard alert fallback");
-            jsContextMenu(el);
-            if (!waitAlert(timeout)) {
-                // last resort on demo pages that show an alert on contextmenu
-                ((JavascriptExecutor) driver).executeScript("alert(arguments[0]);", hardFallbackAlertText);
-                if (!waitAlert(timeout)) log.warn("Alert did not appear after all fallbacks.");
+        try (ActionBudget budget = ActionBudget.open("contextClickAlert", timeout)) {
+            try { actions.contextClick(el).perform(); } catch (Exception ignore) {}
+            if (!waitAlert(budget.share(3))) {
+                log.debug("No alert after context click → JS contextmenu + hard alert fallback");
+                jsContextMenu(el);
+                if (!waitAlert(budget.share(2))) {
+                    // last resort on demo pages that show an alert on contextmenu
+                    ((JavascriptExecutor) driver).executeScript("alert(arguments[0]);", hardFallbackAlertText);
+                    if (!waitAlert(budget.remaining())) log.warn("Alert did not appear after all fallbacks.");
+                }
             }
         }
         return this;
@@ -92,12 +140,9 @@ public class SafeActions {
     /** 2) Expect a custom HTML menu (element) to become visible. */
     public SafeActions contextClickExpectMenu(WebElement target, By menuLocator, Duration timeout) {
         scroll(target);
-        try { actions.contextClick(target).perform(); } catch (Exception ignore) {}
-        if (!waitVisible(target, menuLocator, timeout)) {
-            log.debug("Menu not visible after Actions context click → JS contextmenu");
-            jsContextMenu(target);
-            if (!waitVisible(target, menuLocator, timeout)) log.warn("Menu still not visible after JS fallback.");
-        }
+        if (!withFallback("contextClick", () -> actions.contextClick(target).perform(), () -> jsContextMenu(target),
+                t -> waitVisible(target, menuLocator, t), timeout, target))
+            log.warn("Menu still not visible after JS fallback.");
         return this;
     }
 
@@ -105,37 +150,27 @@ public class SafeActions {
     public SafeActions contextClickExpectUrlChange(WebElement target, Duration timeout) {
         String oldUrl = safeGetUrl();
         scroll(target);
-        try { actions.contextClick(target).perform(); } catch (Exception ignore) {}
-        if (!waitTrue(() -> !safeGetUrl().equals(oldUrl), timeout)) {
-            log.debug("URL not changed after Actions context click → JS contextmenu");
-            jsContextMenu(target);
-            if (!waitTrue(() -> !safeGetUrl().equals(oldUrl), timeout)) log.warn("URL still unchanged after JS fallback.");
-        }
+        if (!withFallback("contextClick", () -> actions.contextClick(target).perform(), () -> jsContextMenu(target),
+                t -> waitTrue(() -> !safeGetUrl().equals(oldUrl), t), timeout, target))
+            log.warn("URL still unchanged after JS fallback.");
         return this;
     }
 
     /** 4) Expect a specific element’s text to become (or equal) expected value. */
     public SafeActions contextClickExpectElementText(WebElement target, WebElement textElement, String expected, Duration timeout) {
         scroll(target);
-        try { actions.contextClick(target).perform(); } catch (Exception ignore) {}
-        if (!waitTrue(() -> expected.equals(textElement.getText()), timeout)) {
-            log.debug("Text not changed after Actions context click → JS contextmenu");
-            jsContextMenu(target);
-            if (!waitTrue(() -> expected.equals(textElement.getText()), timeout))
-                log.warn("Text not changed after JS fallback.");
-        }
+        if (!withFallback("contextClick", () -> actions.contextClick(target).perform(), () -> jsContextMenu(target),
+                t -> waitText(textElement, expected, t), timeout, target))
+            log.warn("Text not changed after JS fallback.");
         return this;
     }
 
     /** 5) Fully custom: pass your own post-condition. */
     public SafeActions contextClickCustom(WebElement target, Supplier<Boolean> postCondition, Duration timeout) {
         scroll(target);
-        try { actions.contextClick(target).perform(); } catch (Exception ignore) {}
-        if (!waitTrue(postCondition, timeout)) {
-            log.debug("Custom post-condition not met → JS contextmenu");
-            jsContextMenu(target);
-            if (!waitTrue(postCondition, timeout)) log.warn("Custom post-condition still not met after JS fallback.");
-        }
+        if (!withFallback("contextClick", () -> actions.contextClick(target).perform(), () -> jsContextMenu(target),
+                t -> waitTrue(postCondition, t), timeout, target))
+            log.warn("Custom post-condition still not met after JS fallback.");
         return this;
     }
 
@@ -143,64 +178,147 @@ public class SafeActions {
     /* ===================== DRAG & DROP ===================== */
     public SafeActions dragAndDrop(WebElement source, WebElement target, Supplier<Boolean> postOk, Duration timeout) {
         scroll(source); scroll(target);
-        try {
-            actions.moveToElement(source)
-                    .clickAndHold(source)
-                    .moveToElement(target)
-                    .pause(Duration.ofMillis(150))
-                    .release(target)
-                    .build().perform();
-        } catch (Exception ignore) {}
-
-        if (!waitTrue(postOk, timeout)) {
-            log.debug("DnD post-condition not met → HTML5 JS fallback");
-            jsHtml5DragDrop(source, target);
-            if (!waitTrue(postOk, timeout)) log.warn("DnD fallback did not satisfy post-condition.");
-        }
+        Runnable nativeDrag = () -> actions.moveToElement(source)
+                .clickAndHold(source)
+                .moveToElement(target)
+                .pause(Duration.ofMillis(150))
+                .release(target)
+                .build().perform();
+        if (!withFallback("dragAndDrop", nativeDrag, () -> jsHtml5DragDrop(source, target),
+                t -> waitTrue(postOk, t), timeout, source, target))
+            log.warn("DnD fallback did not satisfy post-condition.");
         return this;
     }
 
     /* ===================== HELPER ===================== */
+    /**
+     * Runs the native action and, if the post-condition is not met, the JS action. With the StrategyCache the
+     * chain starts with the strategy which worked last time for page, action and targets. The whole chain
+     * shares the timeout as ActionBudget (bounded by an enclosing budget): the first strategy gets three
+     * quarters of it, so a slow but working strategy is not replaced, the second the rest. A chain whose
+     * budget is used up is not continued, and failures are only learned if the enclosing budget did not
+     * shorten the chain. The page url for the cache key is only fetched if the action and target are known
+     * to the cache or the first strategy failed, so a chain which works natively costs no extra command.
+     *
+     * @return true if the post-condition was met
+     */
+    boolean withFallback(String action, Runnable nativeAction, Runnable jsAction,
+                         Predicate<Duration> postCondition, Duration timeout, WebElement... targets) {
+        // elements without a locator would all share one key
+        String target = StrategyCache.isEnabled() ? StrategyCache.target(targets).orElse(null) : null;
+        boolean cached = target != null;
+        StrategyCache.Key key = cached && StrategyCache.isKnown(action, target)
+                ? StrategyCache.key(safeGetUrl(), action, target) : null;
+        StrategyCache.Strategy first = cached ? StrategyCache.first(action, key) : StrategyCache.Strategy.NATIVE;
+        StrategyCache.Strategy second = first == StrategyCache.Strategy.NATIVE ? StrategyCache.Strategy.JS : StrategyCache.Strategy.NATIVE;
+        StrategyCache.Strategy winner = null;
+        boolean learned = false;
+        try (ActionBudget budget = ActionBudget.open(action, timeout)) {
+            if (budget.isExhausted()) {
+                log.debug("{} skipped, budget used up", action);
+                return false;
+            }
+            run(first, nativeAction, jsAction);
+            if (postCondition.test(budget.remaining().minus(budget.share(4)))) {
+                winner = first;
+                learned = true;
+            } else if (budget.isExhausted()) {
+                log.debug("{} post-condition not met with {}, budget used up", action, first);
+            } else {
+                log.debug("{} post-condition not met with {} → {}", action, first, second);
+                if (cached && key == null) key = StrategyCache.key(safeGetUrl(), action, target);
+                run(second, nativeAction, jsAction);
+                if (postCondition.test(budget.remaining())) winner = second;
+                // a loss of the first strategy may be caused by a budget shortened by the enclosing one
+                learned = !budget.isShortened();
+            }
+        }
+        if (key != null && learned) StrategyCache.record(key, winner);
+        return winner != null;
+    }
+
+    /** A failing native action is ignored, the post-condition decides. */
+    private void run(StrategyCache.Strategy strategy, Runnable nativeAction, Runnable jsAction) {
+        if (strategy == StrategyCache.Strategy.JS) {
+            jsAction.run();
+            return;
+        }
+        try { nativeAction.run(); } catch (Exception ignore) {}
+    }
+
     private void scroll(WebElement el) {
         ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView({block:'center'});", el);
     }
 
     private boolean waitAlert(Duration timeout) {
-        try {
-            new WebDriverWait(driver, timeout).until(ExpectedConditions.alertIsPresent());
-            return true;
-        } catch (TimeoutException te) { return false; }
+        return waitTrue(() -> ExpectedConditions.alertIsPresent().apply(driver) != null, timeout);
+    }
+
+    boolean waitVisible(WebElement root, By loc, Duration timeout) {
+        long end = System.nanoTime() + timeout.toNanos();
+        Optional<Locators.Locator> locator = Locators.of(loc);
+        if (locator.isPresent()) {
+            Boolean visible = waitInBrowser(WAIT_VISIBLE_SCRIPT, timeout, root, locator.get().using(), locator.get().value());
+            if (visible != null) return visible;
+        }
+        return waitTrue(() -> isVisibleUnder(root, loc), Duration.ofNanos(Math.max(0, end - System.nanoTime())));
+    }
+
+    private boolean waitText(WebElement el, String expected, Duration timeout) {
+        long end = System.nanoTime() + timeout.toNanos();
+        Boolean matches = waitInBrowser(WAIT_TEXT_SCRIPT, timeout, el, expected);
+        if (matches != null) return matches;
+        return waitTrue(() -> expected.equals(ElementProbe.probe(driver, el).text()), Duration.ofNanos(Math.max(0, end - System.nanoTime())));
     }
 
-    private boolean waitVisible(WebElement root, By loc, Duration timeout) {
+    /**
+     * Waits inside the browser with one async script call.
+     *
+     * @return the result, or null if the script failed (navigation, script timeout), then the caller polls
+     */
+    private Boolean waitInBrowser(String script, Duration timeout, Object... args) {
+        Object[] scriptArgs = new Object[args.length + 1];
+        scriptArgs[0] = timeout.toMillis();
+        System.arraycopy(args, 0, scriptArgs, 1, args.length);
         try {
-            new WebDriverWait(driver, timeout).until(d -> isVisibleUnder(root, loc));
-            return true;
-        } catch (TimeoutException te) { return false; }
+            return Boolean.TRUE.equals(((JavascriptExecutor) driver).executeAsyncScript(script, scriptArgs));
+        } catch (WebDriverException e) {
+            log.debug("In-browser wait failed ({}) → polling", e.getClass().getSimpleName());
+            return null;
+        }
     }
 
+    /** One probe script call; four WebDriver commands only for locators the probe cannot resolve. */
     private boolean isVisibleUnder(WebElement root, By loc) {
+        Optional<ElementProbe.Result> probe = ElementProbe.probe(driver, root, loc);
+        if (probe.isPresent()) return probe.get().child().isVisible();
         try {
             WebElement el = root.findElement(loc);
             return el.isDisplayed() && !"0".equals(el.getCssValue("opacity")) && !"none".equals(el.getCssValue("display"));
         } catch (NoSuchElementException e) { return false; }
     }
 
-    private boolean waitTrue(Supplier<Boolean> cond, Duration timeout) {
+    /** Polls with exponential backoff from 10 ms up to 250 ms. */
+    boolean waitTrue(Supplier<Boolean> cond, Duration timeout) {
         long end = System.nanoTime() + timeout.toNanos();
-        while (System.nanoTime() < end) {
+        long sleepMillis = 10;
+        while (true) {
             try { if (Boolean.TRUE.equals(cond.get())) return true; } catch (Exception ignore) {}
-            try { Thread.sleep(100); } catch (InterruptedException ignored) {}
+            long remaining = end - System.nanoTime();
+            if (remaining <= 0) return false;
+            try {
+                Thread.sleep(Math.min(sleepMillis, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            sleepMillis = Math.min(sleepMillis * 2, 250);
         }
-        return false;
     }
 
+    /* JS fallbacks call the per-document ScriptLibrary instead of sending their source each time. */
     private void jsMouseOver(WebElement target) {
-        String js =
-                "var e=document.createEvent('MouseEvents');" +
-                        "e.initMouseEvent('mouseover',true,true,window,0,0,0,0,0,false,false,false,false,0,null);" +
-                        "arguments[0].dispatchEvent(e);";
-        ((JavascriptExecutor) driver).executeScript(js, target);
+        ScriptLibrary.call(driver, "mouseover", target);
     }
 
     private void jsClick(WebElement el) {
@@ -208,36 +326,23 @@ public class SafeActions {
     }
 
     private void jsDblClick(WebElement el) {
-        String js =
-                "var e=document.createEvent('MouseEvents');" +
-                        "e.initMouseEvent('dblclick',true,true,window,0,0,0,0,0,false,false,false,false,0,null);" +
-                        "arguments[0].dispatchEvent(e);";
-        ((JavascriptExecutor) driver).executeScript(js, el);
+        ScriptLibrary.call(driver, "dblclick", el);
     }
 
     private void jsContextMenu(WebElement el) {
-        String js =
-                "var e=document.createEvent('MouseEvents');" +
-                        "e.initMouseEvent('contextmenu',true,true,window,0,0,0,0,0,false,false,false,false,2,null);" +
-                        "arguments[0].dispatchEvent(e);";
-        ((JavascriptExecutor) driver).executeScript(js, el);
+        ScriptLibrary.call(driver, "contextmenu", el);
     }
 
     private void jsHtml5DragDrop(WebElement source, WebElement target) {
-        String js = """
-            function createEvent(type){var e=document.createEvent("CustomEvent");
-              e.initCustomEvent(type,true,true,null);
-              e.dataTransfer={data:{},setData:function(k,v){this.data[k]=v;},getData:function(k){return this.data[k];}};
-              return e;}
-            function dispatch(el,ev,dt){if(dt)ev.dataTransfer=dt; if(el.dispatchEvent) el.dispatchEvent(ev); else el.fireEvent("on"+ev.type,ev);}
-            var dragStart=createEvent('dragstart'); dispatch(arguments[0],dragStart);
-            var drop=createEvent('drop'); dispatch(arguments[1],drop,dragStart.dataTransfer);
-            var dragEnd=createEvent('dragend'); dispatch(arguments[0],dragEnd,drop.dataTransfer);
-            """;
-        ((JavascriptExecutor) driver).executeScript(js, source, target);
+        ScriptLibrary.call(driver, "dragDrop", source, target);
     }
 
     private void forceVisible(WebElement root, By loc) {
+        Optional<Locators.Locator> locator = Locators.of(loc);
+        if (locator.isPresent()) {
+            ScriptLibrary.call(driver, "forceVisible", root, locator.get().using(), locator.get().value());
+            return;
+        }
         try {
             WebElement el = root.findElement(loc);
             ((JavascriptExecutor) driver).executeScript(
@@ -0,0 +1,158 @@
+package com.example.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.JavascriptException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.bidi.module.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JavaScript helpers of SafeActions and TestBase, installed once per document as {@code window.__sa<version>}
+ * instead of sending their source with every call. A call sends only {@code return __sa<version>.name(...arguments)},
+ * which is not larger than any of the inline scripts it replaces. With WebDriver BiDi the library is
+ * registered as preload script and present in every new document; otherwise, and for documents loaded
+ * before, the first call in a document fails with a ReferenceError and is repeated together with the
+ * library, so only that call costs a second round trip.
+ */
+public final class ScriptLibrary {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScriptLibrary.class);
+
+	static final String VERSION = "5";
+
+	/** Versioned global, a document never holds a library of another version under this name. */
+	static final String GLOBAL = "__sa" + VERSION;
+
+	/** Defines the global, unless it is already installed. */
+	static final String LIBRARY = """
+			if (!window.%s) window.%s = (function () {
+			  %s
+			  function mouse(el, type, button) {
+			    var e = document.createEvent('MouseEvents');
+			    e.initMouseEvent(type, true, true, window, 0, 0, 0, 0, 0, false, false, false, false, button, null);
+			    el.dispatchEvent(e);
+			  }
+			  function dragEvent(type, dataTransfer) {
+			    var e = document.createEvent('CustomEvent');
+			    e.initCustomEvent(type, true, true, null);
+			    e.dataTransfer = dataTransfer || {data: {}, setData: function (k, v) { this.data[k] = v; }, getData: function (k) { return this.data[k]; }};
+			    return e;
+			  }
+			  var sa = {
+			    isHeadless: function () { return navigator.userAgent.toLowerCase().includes('headless'); },
+			    scroll: function (el) { el.scrollIntoView({block: 'center'}); },
+			    click: function (el) { el.click(); },
+			    mouseover: function (el) { mouse(el, 'mouseover', 0); },
+			    dblclick: function (el) { mouse(el, 'dblclick', 0); },
+			    contextmenu: function (el) { mouse(el, 'contextmenu', 2); },
+			    dragDrop: function (source, target) {
+			      var start = dragEvent('dragstart'); source.dispatchEvent(start);
+			      var drop = dragEvent('drop', start.dataTransfer); target.dispatchEvent(drop);
+			      source.dispatchEvent(dragEvent('dragend', drop.dataTransfer));
+			    },
+			    forceVisible: function (root, using, value) {
+			      var el = __find(root, using, value);
+			      if (el) { el.style.display = 'block'; el.style.opacity = '1'; el.style.visibility = 'visible'; }
+			      return !!el;
+			    },
+			    setValue: function (el, value) {
+			      el.value = value;
+			      el.dispatchEvent(new Event('input', {bubbles: true}));
+			      el.dispatchEvent(new Event('change', {bubbles: true}));
+			    },
+			    fill: function (fields) {
+			      var values = [];
+			      for (var i = 0; i < fields.length; i++) {
+			        var field = fields[i];
+			        var el = field.element || __find(document, field.using, field.locatorValue);
+			        if (!el) { values.push(null); continue; }
+			        if (field.text !== null) sa.setValue(el, field.text);
+			        values.push(String(el.value));
+			      }
+			      return values;
+			    },
+			    batch: function (steps) {
+			      for (var i = 0; i < steps.length; i++) sa[steps[i].op].apply(null, steps[i].args);
+			    }
+			  };
+			  return sa;
+			})();
+			""".formatted(GLOBAL, GLOBAL, Locators.FIND_FUNCTION);
+
+	private static final AtomicLong calls = new AtomicLong();
+	private static final AtomicLong installs = new AtomicLong();
+
+	private ScriptLibrary() {
+	}
+
+	/**
+	 * Whether the library is registered as BiDi preload script, {@code -DscriptLibrary.preload}
+	 * (default true). Only used for sessions with a BiDi connection.
+	 */
+	public static boolean isPreloadEnabled() {
+		return Boolean.parseBoolean(System.getProperty("scriptLibrary.preload", "true"));
+	}
+
+	/**
+	 * Registers the library as preload script of the session.
+	 *
+	 * @param bidiDriver a driver with BiDi support
+	 * @return the script module, to be closed with the session
+	 */
+	public static Script preload(WebDriver bidiDriver) {
+		Script script = new Script(bidiDriver);
+		script.addPreloadScript("() => {\n" + LIBRARY + "}");
+		return script;
+	}
+
+	/**
+	 * @return the script sent to call a library function
+	 */
+	public static String callScript(String function) {
+		return "return " + GLOBAL + "." + function + "(...arguments)";
+	}
+
+	/**
+	 * Calls a library function, installing the library in the current document if it is missing.
+	 *
+	 * @param function name of the function, e.g. {@code mouseover}
+	 * @return the result of the function
+	 */
+	public static Object call(WebDriver driver, String function, Object... args) {
+		JavascriptExecutor executor = (JavascriptExecutor) driver;
+		String script = callScript(function);
+		calls.incrementAndGet();
+		try {
+			return executor.executeScript(script, args);
+		} catch (JavascriptException e) {
+			if (!isMissing(e)) {
+				throw e;
+			}
+		}
+		installs.incrementAndGet();
+		logger.debug("Installing script library for {}", function);
+		return executor.executeScript(LIBRARY + script, args);
+	}
+
+	/**
+	 * Whether the call failed because the global is not defined: Chrome and Firefox report
+	 * "&lt;global&gt; is not defined", Safari "Can't find variable: &lt;global&gt;".
+	 */
+	private static boolean isMissing(JavascriptException e) {
+		String message = String.valueOf(e.getRawMessage());
+		return message.contains(GLOBAL + " is not defined") || message.contains("Can't find variable: " + GLOBAL);
+	}
+
+	public record Stats(long calls, long installs) {
+	}
+
+	/**
+	 * Calls and installs on a miss since the start of the JVM.
+	 */
+	public static Stats getStats() {
+		return new Stats(calls.get(), installs.get());
+	}
+}
@@ -0,0 +1,187 @@
+package com.example.utils;
+
+import java.lang.annotation.*;
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.openqa.selenium.*;
+import org.openqa.selenium.support.pagefactory.Annotations;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.ElementLocatorFactory;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.FluentWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Explicit wait engine, used instead of an implicit wait. Sessions run with implicit wait 0, so an
+ * expected-absent element is answered by a single lookup, while lookups of elements which should be
+ * there wait up to their own timeout.
+ * <p>
+ * The default timeout is set with {@code -Dwait.defaultMillis} (default 5000). Timeouts per locator are
+ * registered with {@link #setTimeout(By, Duration)} or with {@link Timeout} on page object fields, see
+ * {@link #locatorFactory(WebDriver)}. The time spent waiting per kind of wait is logged at JVM shutdown.
+ */
+public class SmartWait {
+
+	private static final Logger logger = LoggerFactory.getLogger(SmartWait.class);
+
+	private static final Duration POLLING = Duration.ofMillis(50);
+	private static final Map<By, Duration> locatorTimeouts = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, Stat> stats = new ConcurrentHashMap<>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(SmartWait::logStats, "smart-wait-stats"));
+	}
+
+	private final WebDriver driver;
+
+	public SmartWait(WebDriver driver) {
+		this.driver = driver;
+	}
+
+	/**
+	 * Timeout of a page object field, overrides the default timeout.
+	 */
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.FIELD)
+	public @interface Timeout {
+		long millis();
+	}
+
+	public static Duration getDefaultTimeout() {
+		return Duration.ofMillis(Long.getLong("wait.defaultMillis", 5000));
+	}
+
+	public static void setTimeout(By locator, Duration timeout) {
+		locatorTimeouts.put(locator, timeout);
+	}
+
+	public static Duration timeoutFor(By locator) {
+		return locatorTimeouts.getOrDefault(locator, getDefaultTimeout());
+	}
+
+	public WebElement present(By locator) {
+		return until(ExpectedConditions.presenceOfElementLocated(locator), timeoutFor(locator), "present");
+	}
+
+	public WebElement visible(By locator) {
+		return until(ExpectedConditions.visibilityOfElementLocated(locator), timeoutFor(locator), "visible");
+	}
+
+	public WebElement clickable(By locator) {
+		return until(ExpectedConditions.elementToBeClickable(locator), timeoutFor(locator), "clickable");
+	}
+
+	/**
+	 * Fail-fast check for an element which is expected to be absent: one lookup, no waiting.
+	 */
+	public boolean isAbsent(By locator) {
+		long start = System.nanoTime();
+		boolean absent = driver.findElements(locator).isEmpty();
+		record("absent", System.nanoTime() - start, false);
+		return absent;
+	}
+
+	/**
+	 * Waits until the condition returns a value which is neither null nor false.
+	 *
+	 * @param condition the condition
+	 * @param timeout   max time to wait
+	 * @param kind      name used in the statistics
+	 * @return the value of the condition
+	 * @throws TimeoutException if the condition is not met in time
+	 */
+	public <T> T until(Function<WebDriver, T> condition, Duration timeout, String kind) {
+		long start = System.nanoTime();
+		boolean timedOut = false;
+		try {
+			return new FluentWait<>(driver)
+					.withTimeout(timeout)
+					.pollingEvery(POLLING)
+					.ignoring(NoSuchElementException.class)
+					.ignoring(StaleElementReferenceException.class)
+					.until(condition);
+		} catch (TimeoutException e) {
+			timedOut = true;
+			throw e;
+		} finally {
+			record(kind, System.nanoTime() - start, timedOut);
+		}
+	}
+
+	/**
+	 * Locator factory for {@link org.openqa.selenium.support.PageFactory} which waits explicitly for the
+	 * elements of a page object, using the {@link Timeout} of the field or the default timeout.
+	 */
+	public static ElementLocatorFactory locatorFactory(WebDriver driver) {
+		SmartWait wait = new SmartWait(driver);
+		return field -> new SmartElementLocator(wait, driver, field);
+	}
+
+	private static void record(String kind, long nanos, boolean timedOut) {
+		Stat stat = stats.computeIfAbsent(kind, k -> new Stat());
+		stat.count.incrementAndGet();
+		stat.nanos.addAndGet(nanos);
+		if (timedOut) stat.timeouts.incrementAndGet();
+	}
+
+	private static void logStats() {
+		new TreeMap<>(stats).forEach((kind, stat) -> logger.info("Wait {}: {} waits, {} timeouts, {} ms waited",
+				kind, stat.count.get(), stat.timeouts.get(), TimeUnit.NANOSECONDS.toMillis(stat.nanos.get())));
+	}
+
+	private static final class Stat {
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong timeouts = new AtomicLong();
+		private final AtomicLong nanos = new AtomicLong();
+	}
+
+	private static final class SmartElementLocator implements ElementLocator {
+		private final SmartWait wait;
+		private final SearchContext context;
+		private final By by;
+		private final Duration timeout;
+		private final boolean cacheLookup;
+		private WebElement cachedElement;
+
+		private SmartElementLocator(SmartWait wait, SearchContext context, Field field) {
+			Annotations annotations = new Annotations(field);
+			this.wait = wait;
+			this.context = context;
+			this.by = annotations.buildBy();
+			this.cacheLookup = annotations.isLookupCached();
+			Timeout fieldTimeout = field.getAnnotation(Timeout.class);
+			this.timeout = fieldTimeout != null ? Duration.ofMillis(fieldTimeout.millis()) : timeoutFor(by);
+		}
+
+		@Override
+		public WebElement findElement() {
+			if (cachedElement != null) {
+				return cachedElement;
+			}
+			WebElement element = wait.until(d -> context.findElement(by), timeout, "present");
+			if (cacheLookup) cachedElement = element;
+			return element;
+		}
+
+		@Override
+		public List<WebElement> findElements() {
+			// lists are not waited for, an empty list is a valid answer
+			return context.findElements(by);
+		}
+
+		@Override
+		public String toString() {
+			return "SmartElementLocator '" + by + "'";
+		}
+	}
+}
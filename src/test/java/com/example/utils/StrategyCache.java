@@ -0,0 +1,173 @@
+package com.example.utils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers which strategy of a SafeActions fallback chain satisfied the post-condition per page, action
+ * and target. Later calls start with the winning strategy, so pages where native Actions never work do
+ * not wait a full timeout for them every time. Every {@code -DstrategyCache.reprobeEvery} (default 20)
+ * hits of a key the chain starts with the native strategy again to re-learn. The page is only needed,
+ * and its url only fetched by the caller, once the action and target were recorded on some page, see
+ * {@link #isKnown(String, String)}.
+ * <p>
+ * Enabled with {@code -DstrategyCache} (default true). Hits, misses and re-probes per action are logged
+ * at JVM shutdown.
+ */
+public final class StrategyCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(StrategyCache.class);
+
+	private static final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+	/** action and target of all keys ever recorded */
+	private static final Set<String> known = ConcurrentHashMap.newKeySet();
+	private static final ConcurrentMap<String, Stat> stats = new ConcurrentHashMap<>();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(StrategyCache::logStats, "strategy-cache-stats"));
+	}
+
+	private StrategyCache() {
+	}
+
+	public enum Strategy { NATIVE, JS }
+
+	/**
+	 * @param page   url without query and fragment
+	 * @param action e.g. {@code click}
+	 * @param target description of the target element(s), without session id
+	 */
+	public record Key(String page, String action, String target) {
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty("strategyCache", "true"));
+	}
+
+	private static int getReprobeEvery() {
+		return Integer.getInteger("strategyCache.reprobeEvery", 20);
+	}
+
+	/**
+	 * @return the description of the target elements, without session id, or empty if an element has no
+	 * locator (e.g. returned by a script), such elements are not cached
+	 */
+	public static Optional<String> target(WebElement... targets) {
+		StringBuilder target = new StringBuilder();
+		for (WebElement element : targets) {
+			String description = describe(element);
+			if (description.isEmpty()) return Optional.empty();
+			if (!target.isEmpty()) target.append(" -> ");
+			target.append(description);
+		}
+		return Optional.of(target.toString());
+	}
+
+	public static Key key(String url, String action, String target) {
+		return new Key(stripQuery(url), action, target);
+	}
+
+	/**
+	 * @return true if a strategy of the action and target was recorded on any page; otherwise a lookup
+	 * misses and the caller needs no page url
+	 */
+	public static boolean isKnown(String action, String target) {
+		return known.contains(action + " " + target);
+	}
+
+	/**
+	 * @param key the key, or null for an action and target which are not {@link #isKnown(String, String) known}
+	 * @return the strategy to start with: the learned one, or native for unknown keys and re-probes
+	 */
+	public static Strategy first(String action, Key key) {
+		Stat stat = stats.computeIfAbsent(action, a -> new Stat());
+		Entry entry = key == null ? null : entries.get(key);
+		if (entry == null) {
+			stat.misses.incrementAndGet();
+			return Strategy.NATIVE;
+		}
+		if (entry.strategy == Strategy.JS && entry.hits.incrementAndGet() % getReprobeEvery() == 0) {
+			stat.reprobes.incrementAndGet();
+			return Strategy.NATIVE;
+		}
+		stat.hits.incrementAndGet();
+		return entry.strategy;
+	}
+
+	/**
+	 * Records the strategy which satisfied the post-condition, or forgets the key if none did.
+	 */
+	public static void record(Key key, Strategy winner) {
+		if (winner == null) {
+			entries.remove(key);
+			return;
+		}
+		known.add(key.action() + " " + key.target());
+		Entry previous = entries.get(key);
+		if (previous == null || previous.strategy != winner) {
+			if (previous != null) stats.computeIfAbsent(key.action(), a -> new Stat()).changes.incrementAndGet();
+			entries.put(key, new Entry(winner));
+			logger.debug("{} on {} ({}): {} satisfies the post-condition", key.action(), key.page(), key.target(), winner);
+		}
+	}
+
+	/**
+	 * Locator part of the element's description. Remote elements are described as
+	 * {@code [[Driver: browser (session)] -> id: name]}, page object proxies by their locator.
+	 *
+	 * @return the locator, or an empty string for elements without one, e.g. returned by a script
+	 */
+	static String describe(WebElement element) {
+		String description = String.valueOf(element);
+		int arrow = description.lastIndexOf("-> ");
+		if (arrow < 0) {
+			return description.startsWith("Proxy element for: ") ? description : "";
+		}
+		description = description.substring(arrow + 3);
+		while (description.endsWith("]")) description = description.substring(0, description.length() - 1);
+		return "unknown locator".equals(description) ? "" : description;
+	}
+
+	private static String stripQuery(String url) {
+		int end = url.length();
+		int query = url.indexOf('?');
+		int fragment = url.indexOf('#');
+		if (query >= 0) end = query;
+		if (fragment >= 0 && fragment < end) end = fragment;
+		return url.substring(0, end);
+	}
+
+	private static void logStats() {
+		new TreeMap<>(stats).forEach((action, stat) -> logger.info(
+				"Strategy cache {}: {} hits, {} misses, {} re-probes, {} strategy changes",
+				action, stat.hits.get(), stat.misses.get(), stat.reprobes.get(), stat.changes.get()));
+		Map<Strategy, Long> learned = new TreeMap<>();
+		entries.values().forEach(entry -> learned.merge(entry.strategy, 1L, Long::sum));
+		if (!learned.isEmpty()) logger.info("Strategy cache entries: {}", learned);
+	}
+
+	private static final class Entry {
+		private final Strategy strategy;
+		private final AtomicLong hits = new AtomicLong();
+
+		private Entry(Strategy strategy) {
+			this.strategy = strategy;
+		}
+	}
+
+	private static final class Stat {
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final AtomicLong reprobes = new AtomicLong();
+		private final AtomicLong changes = new AtomicLong();
+	}
+}
@@ -2,11 +2,11 @@ package com.example.utils;
 
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
-import java.text.*;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.*;
@@ -16,27 +16,44 @@ import org.openqa.selenium.edge.EdgeDriver;
 import org.openqa.selenium.logging.*;
 import org.openqa.selenium.remote.RemoteWebDriver;
 import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.MDC;
 
-import ch.qos.logback.classic.spi.ILoggingEvent;
-
+import com.example.config.BrowserLogCapture;
 import com.example.config.DriverFactoryExtended;
+import com.example.config.LazyDriver;
+import com.example.config.PageReadiness;
 import io.qameta.allure.Allure;
 
 @ExtendWith(TestBase.class)
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
-public class TestBase implements AfterTestExecutionCallback, HasLogger {
+public class TestBase implements AfterTestExecutionCallback, LifecycleMethodExecutionExceptionHandler, HasLogger {
+
+	private static final AtomicLong TEST_SEQUENCE = new AtomicLong();
+	private static final DateTimeFormatter LOG_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")
+			.withZone(ZoneId.systemDefault());
 
 	protected WebDriver driver;
 	protected WebDriverWait wait;
+	protected SmartWait smartWait;
 	protected String DOWNLOAD_DIR;
+	private ActionBudget testBudget;
 
+	/**
+	 * Prepares the driver for the test. By default the session is started and the url is loaded on the
+	 * first command of the test, see {@link LazyDriver}; {@code -DlazyDriver=false} starts it here.
+	 */
 	protected void setup(String url) {
 		// driver = DriverFactoryExtended.initDriver("chrome", "http://localhost:4444/wd/hub");
 		// driver = DriverFactoryExtended.initDriver("firefox", "");
-		driver = DriverFactoryExtended.initDriver();
+		if (LazyDriver.isEnabled()) {
+			driver = LazyDriver.of(DriverFactoryExtended::initDriver, drv -> robustGet(drv, url));
+		} else {
+			driver = DriverFactoryExtended.initDriver();
+			robustGet(driver, url);
+		}
 		DOWNLOAD_DIR = DriverFactoryExtended.getDownloadDir();
-		robustGet(driver, url);
 		wait = new WebDriverWait(driver, Duration.ofSeconds(10));
+		smartWait = new SmartWait(driver);
 	}
 
 	protected void wait(int millis) {
@@ -47,10 +64,45 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 		}
 	}
 
+	@BeforeEach
+	void initTestLog(TestInfo info) {
+		MDC.put(TestLogAppender.TEST_ID, info.getTestClass().map(Class::getSimpleName).orElse("test")
+				+ "#" + info.getDisplayName() + "#" + TEST_SEQUENCE.incrementAndGet());
+	}
+
+	/**
+	 * Bounds all SafeActions of a test with {@code -Dactions.testBudgetMillis} (default 0, no bound), see
+	 * {@link ActionBudget}.
+	 */
+	@BeforeEach
+	void openTestBudget() {
+		long millis = Long.getLong("actions.testBudgetMillis", 0);
+		if (millis > 0) {
+			testBudget = ActionBudget.open("test", Duration.ofMillis(millis));
+		}
+	}
+
 	@AfterEach
 	protected void teardown() {
-		printBrowserLogs();
-		DriverFactoryExtended.quitDriver();
+		try {
+			if (LazyDriver.unwrap(driver) == null) {
+				return; // session never started
+			}
+			DriverFactoryExtended.drainResourceBlockerStats()
+					.ifPresent(stats -> getLogger().info("Resource blocking: {}", stats));
+			printBrowserLogs();
+			DriverFactoryExtended.quitDriver();
+		} catch (RuntimeException | Error e) {
+			FlushOnFailureFilter.flush(TestLogAppender.currentKey());
+			throw e;
+		} finally {
+			TestLogAppender.get().ifPresent(appender -> appender.drain(TestLogAppender.currentKey()));
+			MDC.remove(TestLogAppender.TEST_ID);
+			if (testBudget != null) {
+				testBudget.close();
+				testBudget = null;
+			}
+		}
 	}
 
 	@AfterAll
@@ -62,11 +114,24 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 	@Override
 	public void afterTestExecution(ExtensionContext context) throws Exception {
 		if (context.getExecutionException().isPresent()) {
-			String filename = getScreenshotFilename(context);
-			DriverFactoryExtended.saveScreenshot(filename);
+			FlushOnFailureFilter.flush(TestLogAppender.currentKey());
+			if (DriverFactoryExtended.getDriver() != null) {
+				String filename = getScreenshotFilename(context);
+				DriverFactoryExtended.saveScreenshot(filename);
+			}
 		}
 	}
 
+	/**
+	 * A failing {@code @BeforeEach} (e.g. the driver setup) skips {@link #afterTestExecution}, so the
+	 * buffered DEBUG log of the test is flushed here before {@link #teardown()} drains it.
+	 */
+	@Override
+	public void handleBeforeEachMethodExecutionException(ExtensionContext context, Throwable throwable) throws Throwable {
+		FlushOnFailureFilter.flush(TestLogAppender.currentKey());
+		throw throwable;
+	}
+
 	protected void saveScreenshot(TestInfo info)  {
 		if (info.getTestClass().isPresent() || info.getTestMethod().isPresent()) {
 			String filename = getScreenshotFilename(info.getTestClass().get().getSimpleName(), info.getTestMethod().get().getName());
@@ -92,78 +157,75 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 	}
 
 
+	/**
+	 * Logs the browser console of the test and attaches the test log to Allure. The entries captured
+	 * over BiDi are drained from the session's buffer; without capture the Chrome and Edge logs are read
+	 * with the logging API.
+	 */
 	public void printBrowserLogs() {
-		if (driver instanceof ChromeDriver || driver instanceof EdgeDriver || driver instanceof RemoteWebDriver) {
-			if (driver instanceof RemoteWebDriver) {
-				String browserName = ((RemoteWebDriver) driver).getCapabilities().getBrowserName().toLowerCase();
-				if (!(browserName.equalsIgnoreCase("chrome") || browserName.equalsIgnoreCase("edge"))) {
-					return;
+		WebDriver driver = LazyDriver.unwrap(this.driver);
+		if (driver == null) {
+			return;
+		}
+		try {
+			StringBuilder logs = new StringBuilder();
+			Optional<List<BrowserLogCapture.Entry>> captured = DriverFactoryExtended.drainBrowserLogs();
+			if (captured.isPresent()) {
+				for (BrowserLogCapture.Entry entry : captured.get()) {
+					appendBrowserLog(logs, entry.timestamp(), entry.level(), entry.text());
 				}
-			}
-			try {
-				Logs browserLogs = driver.manage().logs();
-				LogEntries logEntries = browserLogs.get(LogType.BROWSER);
-				StringBuilder logs = new StringBuilder();
-
+			} else if (supportsLogsApi(driver)) {
 				// Log Levels LoggerFactory: error, warn, info, debug, trace,
 				// Log Levels from Browser: OFF, SEVERE, WARNING, INFO, CONFIG, FINE, FINER, FINEST, ALL
-				for (LogEntry entry : logEntries) {
-					logs.append(formatDate(entry.getTimestamp()))
-							.append(" ")
-							.append("[browser]")
-							.append(" ")
-							.append(entry.getLevel())
-							.append(" ")
-							.append(entry.getMessage());
-					logs.append(System.lineSeparator());
+				for (LogEntry entry : driver.manage().logs().get(LogType.BROWSER)) {
+					appendBrowserLog(logs, entry.getTimestamp(), entry.getLevel(), entry.getMessage());
 				}
+			} else {
+				return;
+			}
 
-				if (!logs.isEmpty()) {
-					getLogger().info("{}{}", System.lineSeparator(), logs);
-				}
+			if (!logs.isEmpty()) {
+				getLogger().info("{}{}", System.lineSeparator(), logs);
+			}
 
-				addLogEntriesToAllureFromMapAppender();
+			addLogEntriesToAllure();
 
-			} catch (Exception e) {
-				getLogger().error("Failed to get browser logs {}", String.valueOf(e));
-			}
+		} catch (Exception e) {
+			getLogger().error("Failed to get browser logs {}", String.valueOf(e));
+		}
+	}
+
+	private static boolean supportsLogsApi(WebDriver driver) {
+		if (driver instanceof ChromeDriver || driver instanceof EdgeDriver) {
+			return true;
+		}
+		if (driver instanceof RemoteWebDriver remote) {
+			String browserName = remote.getCapabilities().getBrowserName().toLowerCase();
+			return browserName.equalsIgnoreCase("chrome") || browserName.equalsIgnoreCase("edge");
 		}
+		return false;
+	}
 
+	private static void appendBrowserLog(StringBuilder logs, long timestamp, Object level, String message) {
+		logs.append(formatDate(timestamp))
+				.append(" ")
+				.append("[browser]")
+				.append(" ")
+				.append(level)
+				.append(" ")
+				.append(message);
+		logs.append(System.lineSeparator());
 	}
 
 	private static String formatDate(long timestamp) {
-		Date date = new Date(timestamp);
-		Format format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
-		return format.format(date);
-	}
-
-	private void addLogEntriesToAllureFromMapAppender() {
-		List<String> logEntries = new ArrayList<>();
-		ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) org.slf4j.LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
-		MapAppender mapAppender = (MapAppender)root.getAppender("map");
-
-		if (mapAppender != null) {
-			Map<String, ILoggingEvent> eventMap = mapAppender.getEventMap();
-			eventMap.forEach((k, event) -> {
-				logEntries.add(mapAppender.createLogEntry(event));
-			});
-
-			List<String> logs = new ArrayList<>();
-			logEntries.forEach(entry -> {
-				if (entry.contains("[browser]")) {
-					if (entry.contains("\n") && entry.contains("\r")) {
-						entry = entry.replace("\r", "");
-					}
-					logs.addAll(Arrays.asList(entry.split("\n")));
-				} else {
-					logs.add(entry); // + System.lineSeparator());
-				}
-			});
-			logs.sort(String::compareTo);
-			Allure.addAttachment("log", String.join("\n", logs));
-			eventMap.clear();
-		}
+		return LOG_DATE_FORMAT.format(Instant.ofEpochMilli(timestamp));
+	}
 
+	private void addLogEntriesToAllure() {
+		TestLogAppender.get().ifPresent(appender -> {
+			TestLogAppender.Drained drained = appender.drain(TestLogAppender.currentKey());
+			AllureLogWriter.attach("log", drained, !FlushOnFailureFilter.isEnabled() || drained.failed());
+		});
 	}
 
 	/**
@@ -179,18 +241,13 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 			element.sendKeys(value);
 
 			// check if the value was set correctly
-			if (!value.equals(element.getAttribute("value"))) {
+			if (!value.equals(ElementProbe.probe(driver, element).value())) {
 				throw new RuntimeException("sendKeys hat nicht den gewünschten Wert gesetzt.");
 			}
 
 		} catch (Exception e) {
 			// Fallback to JavaScript if sendKeys fails or does not set the value correctly
-			((JavascriptExecutor) driver).executeScript(
-					"arguments[0].value = arguments[1];" +
-							"arguments[0].dispatchEvent(new Event('input', { bubbles: true }));" +
-							"arguments[0].dispatchEvent(new Event('change', { bubbles: true }));",
-					element, value
-			);
+			ScriptLibrary.call(driver, "setValue", element, value);
 		}
 	}
 
@@ -204,8 +261,7 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 	 */
 	protected static void pasteText(WebDriver driver, WebElement element, String text) {
 
-		boolean headless = ((JavascriptExecutor) driver)
-				.executeScript("return navigator.userAgent.toLowerCase().includes('headless')") != null;
+		boolean headless = Boolean.TRUE.equals(ScriptLibrary.call(driver, "isHeadless"));
 		if (!headless) {
 			// copy Text in Clipboard
 			Toolkit.getDefaultToolkit().getSystemClipboard()
@@ -222,20 +278,15 @@ public class TestBase implements AfterTestExecutionCallback, HasLogger {
 			}
 		} else {
 			// Headless- oder Fallback-Option: Set value directly via JavaScript
-			((JavascriptExecutor) driver).executeScript(
-					"arguments[0].value = arguments[1];", element, text);
+			ScriptLibrary.call(driver, "setValue", element, text);
 		}
 	}
 
+	/**
+	 * Loads the url and waits until the page is ready as configured with {@code -Dnav.readiness}, see
+	 * {@link PageReadiness}.
+	 */
 	void robustGet(WebDriver driver, String url) {
-		try {
-			driver.get(url);
-		} catch (WebDriverException e) {
-			// one quick retry
-			try { driver.navigate().to(url); } catch (Exception ignored) {}
-		}
-		// small readiness check (doesn’t wait for all subresources)
-		((JavascriptExecutor) driver).executeScript("return document.readyState");
+		PageReadiness.navigate(driver instanceof LazyDriver lazy ? lazy.getWrappedDriver() : driver, url);
 	}
 }
-
@@ -0,0 +1,127 @@
+package com.example.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Collects the log events of each test in its own bounded buffer. Events are routed by the MDC key
+ * {@value #TEST_ID}, set by {@link TestBase}. Events without a test id (pre-warmer, screenshot writer,
+ * BiDi listeners, schedulers) are not buffered, nothing would ever drain them; they are only written to
+ * the console, see {@link FlushOnFailureFilter}. Appending is lock-free; when a buffer is full the oldest
+ * events are overwritten and counted as dropped.
+ * <p>
+ * The buffer size is set in logback-test.xml with {@code <capacity>} (default 2048). Messages are
+ * formatted when the buffer is read, so events which are never written cost no formatting; arguments
+ * should therefore not be mutated after logging.
+ */
+public class TestLogAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+	public static final String TEST_ID = "testId";
+	public static final String NAME = "testLog";
+
+	private final ConcurrentMap<String, EventBuffer> buffers = new ConcurrentHashMap<>();
+	private int capacity = 2048;
+
+	public void setCapacity(int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Returns the appender configured in logback-test.xml, if any.
+	 */
+	public static Optional<TestLogAppender> get() {
+		ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+		return root.getAppender(NAME) instanceof TestLogAppender appender ? Optional.of(appender) : Optional.empty();
+	}
+
+	/**
+	 * Routing key of the current thread: the test id from the MDC or, outside of a test, the thread name,
+	 * which has no buffer.
+	 */
+	public static String currentKey() {
+		String testId = org.slf4j.MDC.get(TEST_ID);
+		return testId != null ? testId : Thread.currentThread().getName();
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		String key = event.getMDCPropertyMap().get(TEST_ID);
+		if (key == null) {
+			return;
+		}
+		// the thread name is resolved lazily, capture it now; the message is formatted when read
+		event.getThreadName();
+		EventBuffer buffer = buffers.get(key);
+		if (buffer == null) {
+			buffer = buffers.computeIfAbsent(key, k -> new EventBuffer(capacity));
+		}
+		buffer.add(event);
+	}
+
+	/**
+	 * Removes the buffer of the key and returns its events in order of arrival.
+	 */
+	public Drained drain(String key) {
+		EventBuffer buffer = buffers.remove(key);
+		return buffer == null ? new Drained(List.of(), 0, false) : buffer.read();
+	}
+
+	/**
+	 * Marks the test of the key as failed and returns its events so far, without removing them.
+	 */
+	public Drained markFailed(String key) {
+		EventBuffer buffer = buffers.computeIfAbsent(key, k -> new EventBuffer(capacity));
+		buffer.failed = true;
+		return buffer.read();
+	}
+
+	/**
+	 * Events of a test in order of arrival, the number of events overwritten because the buffer was full
+	 * and whether the test was marked as failed.
+	 */
+	public record Drained(List<ILoggingEvent> events, long dropped, boolean failed) {
+	}
+
+	/**
+	 * Multi-producer ring buffer. Each producer claims a sequence number and writes its slot; the slot
+	 * keeps the sequence, so a reader skips slots which are overwritten or not written yet.
+	 */
+	private static final class EventBuffer {
+		private final AtomicReferenceArray<Slot> slots;
+		private final AtomicLong next = new AtomicLong();
+		private volatile boolean failed;
+
+		private EventBuffer(int capacity) {
+			this.slots = new AtomicReferenceArray<>(capacity);
+		}
+
+		void add(ILoggingEvent event) {
+			long sequence = next.getAndIncrement();
+			slots.set((int) (sequence % slots.length()), new Slot(sequence, event));
+		}
+
+		Drained read() {
+			long end = next.get();
+			long start = Math.max(0, end - slots.length());
+			List<ILoggingEvent> events = new ArrayList<>((int) (end - start));
+			for (long sequence = start; sequence < end; sequence++) {
+				Slot slot = slots.get((int) (sequence % slots.length()));
+				if (slot != null && slot.sequence == sequence) {
+					events.add(slot.event);
+				}
+			}
+			return new Drained(events, end - events.size(), failed);
+		}
+
+		private record Slot(long sequence, ILoggingEvent event) {
+		}
+	}
+}